@@ -3,6 +3,7 @@ from typing import Tuple, List, Optional, Dict
 
 from src.services.dto.bounding_box import BoundingBoxDTO
 from src.services.dto.json_encodable import JSONEncodable
+from src.services.flask_.embedding_format import encode_embedding
 from src.services.imgtools.types import Array1D, Array3D
 
 
@@ -10,6 +11,9 @@ from src.services.imgtools.types import Array1D, Array3D
 class EmbeddingDTO(JSONEncodable):
     embedding: Array1D
 
+    def to_json(self):
+        return {'embedding': encode_embedding(self.embedding)}
+
 
 class GenderDTO(JSONEncodable):
     def __init__(self, gender, gender_probability=1.):
@@ -13,9 +13,14 @@
 #  permissions and limitations under the License.
 
 API_KEY_HEADER = 'X-Api-Key'
+EMBEDDING_FORMAT_HEADER = 'X-Embedding-Format'
 
 
 class ARG:
     LIMIT = 'limit'
     DET_PROB_THRESHOLD = 'det_prob_threshold'
-    FACE_PLUGINS = 'face_plugins'
\ No newline at end of file
+    FACE_PLUGINS = 'face_plugins'
+
+
+class EmbeddingFormat:
+    BASE64_FLOAT32 = 'base64-float32'
@@ -0,0 +1,33 @@
+#  Copyright (c) 2020 the original author or authors
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#       https://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+#  or implied. See the License for the specific language governing
+#  permissions and limitations under the License.
+
+import base64
+
+import numpy as np
+from flask import has_request_context, request
+
+from src.services.flask_.constants import EMBEDDING_FORMAT_HEADER, EmbeddingFormat
+
+
+def encode_embedding(embedding):
+    """
+    Embedding as a JSON value: a list of numbers or, if the client asked for it with the header,
+    base64 of its little-endian float32 values, which is faster to write and to parse
+
+    >>> encode_embedding([1.0, 2.0])
+    [1.0, 2.0]
+    """
+    if has_request_context() and request.headers.get(EMBEDDING_FORMAT_HEADER) == EmbeddingFormat.BASE64_FLOAT32:
+        return base64.b64encode(np.asarray(embedding, dtype='<f4').tobytes()).decode('ascii')
+    return embedding
@@ -0,0 +1,51 @@
+#  Copyright (c) 2020 the original author or authors
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#       https://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+#  or implied. See the License for the specific language governing
+#  permissions and limitations under the License.
+
+import base64
+
+import numpy as np
+import pytest
+from flask import jsonify
+
+from src.services.dto.plugin_result import EmbeddingDTO
+from src.services.flask_.constants import EMBEDDING_FORMAT_HEADER, EmbeddingFormat
+
+ENDPOINT = '/endpoint'
+EMBEDDING = np.array([0.5, -1.25, 3.0], dtype=np.float32)
+
+
+@pytest.fixture
+def client_with_embedding_endpoint(app):
+    @app.route(ENDPOINT)
+    def endpoint():
+        return jsonify(result=EmbeddingDTO(embedding=EMBEDDING))
+
+    return app.test_client()
+
+
+def test__given_no_format_header__when_requesting__then_returns_list(client_with_embedding_endpoint):
+    pass  # NOSONAR
+
+    res = client_with_embedding_endpoint.get(ENDPOINT)
+
+    assert res.json['result']['embedding'] == [0.5, -1.25, 3.0]
+
+
+def test__given_base64_format_header__when_requesting__then_returns_little_endian_float32(client_with_embedding_endpoint):
+    headers = {EMBEDDING_FORMAT_HEADER: EmbeddingFormat.BASE64_FLOAT32}
+
+    res = client_with_embedding_endpoint.get(ENDPOINT, headers=headers)
+
+    decoded = np.frombuffer(base64.b64decode(res.json['result']['embedding']), dtype='<f4')
+    assert decoded.tolist() == [0.5, -1.25, 3.0]
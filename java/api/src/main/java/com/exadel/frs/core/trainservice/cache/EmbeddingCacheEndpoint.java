@@ -0,0 +1,40 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint with the memory taken by cached embeddings of every model, for capacity planning.
+ * Not exposed over HTTP unless listed in {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "embeddingcache")
+@RequiredArgsConstructor
+public class EmbeddingCacheEndpoint {
+
+    private static final int VISIBLE_API_KEY_PREFIX = 8;
+
+    private final EmbeddingCacheProvider embeddingCacheProvider;
+
+    @ReadOperation
+    public Map<String, Object> residentBytes() {
+        val models = new TreeMap<String, Long>();
+        embeddingCacheProvider.getResidentBytes()
+                              .forEach((apiKey, bytes) -> models.put(mask(apiKey), bytes));
+
+        return Map.of(
+                "totalBytes", models.values().stream().mapToLong(Long::longValue).sum(),
+                "models", models
+        );
+    }
+
+    // api keys are secrets, a prefix is enough to tell models apart
+    private static String mask(final String apiKey) {
+        return apiKey.length() <= VISIBLE_API_KEY_PREFIX ? apiKey : apiKey.substring(0, VISIBLE_API_KEY_PREFIX) + "...";
+    }
+}
@@ -1,17 +1,35 @@
 package com.exadel.frs.core.trainservice.cache;
 
+import com.exadel.frs.commonservice.projection.EmbeddingProjection;
+import com.exadel.frs.core.trainservice.cache.EmbeddingCollectionStore.StoredCollection;
 import com.exadel.frs.core.trainservice.dto.CacheActionDto;
+import com.exadel.frs.core.trainservice.dto.CacheDeltaDto;
 import com.exadel.frs.core.trainservice.service.EmbeddingService;
 import com.exadel.frs.core.trainservice.service.NotificationSenderService;
+import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.PostConstruct;
 
 import static com.exadel.frs.core.trainservice.system.global.Constants.SERVER_UUID;
 
@@ -21,58 +39,451 @@ import static com.exadel.frs.core.trainservice.system.global.Constants.SERVER_UU
 public class EmbeddingCacheProvider {
 
     private static final long CACHE_EXPIRATION = 60 * 60 * 24L;
-    private static final long CACHE_MAXIMUM_SIZE = 10;
+    private static final long BYTES_IN_KB = 1024;
+    // the rest of the heap is left for requests, also ND4J bounds its off-heap buffers by the heap size by default
+    private static final int DEFAULT_BUDGET_HEAP_FRACTION = 2;
 
     private final EmbeddingService embeddingService;
 
     private final NotificationSenderService notificationSenderService;
 
-    private static final Cache<String, EmbeddingCollection> cache =
-            CacheBuilder.newBuilder()
-                    .expireAfterAccess(CACHE_EXPIRATION, TimeUnit.SECONDS)
-                    .maximumSize(CACHE_MAXIMUM_SIZE)
-                    .build();
+    private final EmbeddingCollectionStore collectionStore;
 
-    public EmbeddingCollection getOrLoad(final String apiKey) {
+    @Value("${app.recognition.precision}")
+    private EmbeddingPrecision precision = EmbeddingPrecision.DOUBLE;
 
-        var result = cache.getIfPresent(apiKey);
+    @Value("${app.recognition.index.enabled}")
+    private boolean indexEnabled;
 
-        if (result == null) {
-            result = embeddingService.doWithEnhancedEmbeddingProjectionStream(apiKey, EmbeddingCollection::from);
+    @Value("${app.recognition.index.m}")
+    private int indexMaxNeighbours;
 
-            cache.put(apiKey, result);
+    @Value("${app.recognition.index.ef-construction}")
+    private int indexEfConstruction;
+
+    /**
+     * Memory budget of all cached collections, see {@link EmbeddingCollection#getResidentBytes()}, 0 - half of the max heap.
+     */
+    @Value("${app.recognition.cache.max-weight-mb}")
+    private long cacheMaxWeightMb;
+
+    private long cacheMaxWeightKb;
+
+    private Cache<String, EmbeddingCollection> cache;
+
+    /**
+     * Collections heavier than the whole budget. The weighted cache evicts such an entry right after inserting it,
+     * so they are kept here instead of being reloaded on every request. They are not limited by the budget.
+     */
+    private final Cache<String, EmbeddingCollection> oversized = CacheBuilder.newBuilder()
+                                                                             .expireAfterAccess(CACHE_EXPIRATION, TimeUnit.SECONDS)
+                                                                             .build();
+
+    /**
+     * Sequence of the last event received from a node for an api key, by node uuid + api key.
+     */
+    private final Cache<String, Long> receivedSequences = CacheBuilder.newBuilder()
+                                                                      .expireAfterAccess(CACHE_EXPIRATION, TimeUnit.SECONDS)
+                                                                      .build();
 
-            notifyCacheEvent("UPDATE", apiKey);
+    @PostConstruct
+    private void postConstruct() {
+        cacheMaxWeightKb = cacheMaxWeightMb > 0
+                ? cacheMaxWeightMb * BYTES_IN_KB
+                : Runtime.getRuntime().maxMemory() / DEFAULT_BUDGET_HEAP_FRACTION / BYTES_IN_KB;
+        log.info("Embedding cache budget is {} MB", cacheMaxWeightKb / BYTES_IN_KB);
+
+        cache = CacheBuilder.newBuilder()
+                            .expireAfterAccess(CACHE_EXPIRATION, TimeUnit.SECONDS)
+                            // a single segment, otherwise every segment gets only a part of the budget
+                            .concurrencyLevel(1)
+                            .maximumWeight(cacheMaxWeightKb)
+                            .weigher((String apiKey, EmbeddingCollection collection) -> weightInKb(collection))
+                            .build();
+    }
+
+    /**
+     * Concurrent calls for the same absent key are coalesced: only one of them loads the collection,
+     * the others wait for it and get the same instance.
+     * <p>
+     * Other nodes are not notified about a load, nothing changed for them.
+     */
+    public EmbeddingCollection getOrLoad(final String apiKey) {
+        var result = getIfPresent(apiKey);
+        if (result != null) {
+            return result;
         }
 
-        return result;
+        try {
+            return cache.get(apiKey, () -> {
+                val collection = load(apiKey);
+                if (isOversized(collection)) {
+                    // before the cache drops it, so that requests coming after that don't load it again
+                    keepOversized(apiKey, collection);
+                }
+                return collection;
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
-    public void ifPresent(String apiKey, Consumer<EmbeddingCollection> consumer) {
-        Optional.ofNullable(cache.getIfPresent(apiKey))
-                .ifPresent(consumer);
+    /**
+     * Loads the collection into the cache if it isn't there yet.
+     */
+    public void warmUp(final String apiKey) {
+        getOrLoad(apiKey);
+    }
+
+    /**
+     * Applies the change to the cached collection, if any, and sends it to other nodes.
+     *
+     * @param delta    the same change for other nodes, they apply it to their collections
+     * @param consumer the change
+     */
+    public void ifPresent(String apiKey, CacheDeltaDto delta, Consumer<EmbeddingCollection> consumer) {
+        // the change is committed already, so the version includes it
+        delta.setVersion(embeddingService.getCollectionVersion(apiKey));
 
-        cache.getIfPresent(apiKey);
-        notifyCacheEvent("UPDATE", apiKey);
+        Optional.ofNullable(getIfPresent(apiKey))
+                .ifPresent(collection -> {
+                    consumer.accept(collection);
+                    advanceVersion(apiKey, collection, delta);
+                    reweigh(apiKey, collection);
+                });
+
+        notifyCacheEvent("UPDATE", apiKey, delta);
+    }
+
+    /**
+     * @return estimated memory taken by every cached collection, in bytes
+     */
+    public Map<String, Long> getResidentBytes() {
+        return getAll().entrySet()
+                       .stream()
+                       .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getResidentBytes()));
     }
 
     public void invalidate(final String apiKey) {
         cache.invalidate(apiKey);
+        oversized.invalidate(apiKey);
+        collectionStore.delete(apiKey);
         notifyCacheEvent("DELETE", apiKey);
     }
 
-
+    /**
+     * Reloads the collection, if it's cached. A node which doesn't have it has nothing to update,
+     * it's loaded with all the changes on the first request.
+     */
     public void receivePutOnCache(String apiKey) {
-        var result = embeddingService.doWithEnhancedEmbeddingProjectionStream(apiKey, EmbeddingCollection::from);
-        cache.put(apiKey, result);
+        if (getIfPresent(apiKey) == null) {
+            return;
+        }
+
+        var result = load(apiKey);
+        if (isOversized(result)) {
+            cache.invalidate(apiKey);
+            keepOversized(apiKey, result);
+        } else {
+            oversized.invalidate(apiKey);
+            cache.put(apiKey, result);
+        }
+    }
+
+    /**
+     * Registers an event of another node.
+     *
+     * @return {@code false} if some previous events of that node for the api key were missed
+     */
+    public boolean receiveSequence(final String serverUUID, final String apiKey, final Long sequence) {
+        if (sequence == null) {
+            // the node doesn't number its events
+            return false;
+        }
+
+        val previous = receivedSequences.asMap().put(serverUUID + apiKey, sequence);
+
+        // before the first event of a node there is nothing to miss, the collection is loaded with all the previous changes
+        return previous == null || sequence == previous + 1;
+    }
+
+    /**
+     * Applies a change made by another node, if the collection is cached.
+     */
+    public void receiveDeltaOnCache(final String apiKey, final CacheDeltaDto delta) {
+        val collection = getIfPresent(apiKey);
+        if (collection == null) {
+            // it's loaded with all the changes on the first request
+            return;
+        }
+
+        delta.getRenamedSubjectNames().forEach(collection::updateSubjectName);
+        delta.getRemovedSubjectNames().forEach(collection::removeEmbeddingsBySubjectName);
+        delta.getRemovedEmbeddingIds().forEach(collection::removeEmbedding);
+        if (!delta.getAddedEmbeddingIds().isEmpty()) {
+            embeddingService.getEnhancedEmbeddingProjections(apiKey, delta.getAddedEmbeddingIds())
+                            .forEach(collection::addEmbedding);
+        }
+        if (delta.getToVersion() != null) {
+            advanceVersion(apiKey, collection, delta);
+        }
+
+        reweigh(apiKey, collection);
+    }
+
+    /**
+     * Compares versions of cached collections with the database and brings outdated collections up to date,
+     * e.g. after notifications were lost because the notification connection was broken.
+     */
+    @Scheduled(fixedDelayString = "${app.recognition.version-check-interval}")
+    public void checkVersions() {
+        val cached = getAll();
+        if (cached.isEmpty()) {
+            return;
+        }
+
+        val versions = embeddingService.getCollectionVersions(cached.keySet());
+        cached.forEach((apiKey, collection) -> {
+            if (versions.getOrDefault(apiKey, 0L) > collection.getDatabaseVersion()) {
+                tryCatchUp(apiKey, collection);
+            }
+        });
+    }
+
+    /**
+     * Reloads the collection, if it's cached, after some changes of another node were missed.
+     */
+    public void receiveMissedChangesOnCache(final String apiKey) {
+        if (getIfPresent(apiKey) != null) {
+            log.info("Missed changes of embeddings of a model, reloading them");
+            receivePutOnCache(apiKey);
+        }
     }
 
     public void receiveInvalidateCache(final String apiKey) {
         cache.invalidate(apiKey);
+        oversized.invalidate(apiKey);
+        collectionStore.delete(apiKey);
+    }
+
+    private EmbeddingCollection load(final String apiKey) {
+        // taken before the embeddings, so the collection is never marked newer than it is
+        val version = embeddingService.getCollectionVersion(apiKey);
+        var result = collectionStore.isEnabled() ? loadWithStore(apiKey, version) : loadFromDb(apiKey);
+        result.updateDatabaseVersion(version);
+
+        if (indexEnabled) {
+            result.attachIndex(new HnswIndex(indexMaxNeighbours, indexEfConstruction));
+        }
+        // compaction frees the rows of removed embeddings
+        result.setCompactionListener(() -> reweigh(apiKey, result));
+
+        return result;
+    }
+
+    private EmbeddingCollection loadFromDb(final String apiKey) {
+        return embeddingService.doWithEnhancedEmbeddingProjectionStream(
+                apiKey,
+                stream -> EmbeddingCollection.from(stream, precision)
+        );
+    }
+
+    /**
+     * Reads the stored collection and fetches from the database only embeddings which were added after it was stored.
+     * Falls back to the full load if there is no stored collection or it's too outdated.
+     *
+     * @param version current version of embeddings of the model in the database
+     */
+    private EmbeddingCollection loadWithStore(final String apiKey, final long version) {
+        val calculators = embeddingService.getCalculators(apiKey);
+        val restored = collectionStore.read(apiKey, precision)
+                                      // all the embeddings are different after recalculation
+                                      .filter(stored -> stored.calculators().equals(calculators))
+                                      .flatMap(stored -> restore(apiKey, stored, version));
+        if (restored.isPresent()) {
+            return restored.get();
+        }
+
+        val result = loadFromDb(apiKey);
+        // stored with the version
+        result.updateDatabaseVersion(version);
+        collectionStore.write(apiKey, result, calculators);
+
+        return result;
+    }
+
+    private Optional<EmbeddingCollection> restore(final String apiKey, final StoredCollection stored, final long version) {
+        if (stored.databaseVersion() == version) {
+            // nothing changed in the database since the collection was stored, there is nothing to compare
+            log.debug("Embeddings of a model restored: {} stored, up to date", stored.projections().length);
+            return Optional.of(EmbeddingCollection.restore(
+                    stored.embeddings(),
+                    IntStream.range(0, stored.projections().length).toArray(),
+                    stored.projections(),
+                    List.of(),
+                    precision
+            ));
+        }
+
+        val current = embeddingService.listEmbeddings(apiKey, null, Pageable.unpaged()).getContent();
+
+        val storedRows = new HashMap<UUID, Integer>(stored.projections().length * 2);
+        for (int row = 0; row < stored.projections().length; row++) {
+            storedRows.put(stored.projections()[row].embeddingId(), row);
+        }
+
+        val rows = new ArrayList<Integer>(current.size());
+        val projections = new ArrayList<EmbeddingProjection>(current.size());
+        val missing = new ArrayList<UUID>();
+        for (val projection : current) {
+            val row = storedRows.get(projection.embeddingId());
+            if (row == null) {
+                missing.add(projection.embeddingId());
+            } else {
+                // subjects may have been renamed since then
+                rows.add(row);
+                projections.add(projection);
+            }
+        }
+
+        if (missing.size() > current.size() / 2) {
+            return Optional.empty();
+        }
+
+        val delta = embeddingService.getEnhancedEmbeddingProjections(apiKey, missing);
+        val result = EmbeddingCollection.restore(
+                stored.embeddings(),
+                rows.stream().mapToInt(Integer::intValue).toArray(),
+                projections.toArray(EmbeddingProjection[]::new),
+                delta,
+                precision
+        );
+
+        result.updateDatabaseVersion(version);
+        if (!delta.isEmpty() || rows.size() < stored.projections().length || stored.databaseVersion() != version) {
+            collectionStore.write(apiKey, result, stored.calculators());
+        }
+        log.debug("Embeddings of a model restored: {} stored, {} fetched", rows.size(), delta.size());
+
+        return Optional.of(result);
+    }
+
+    /**
+     * Sets the versions of a change just applied to the collection. If changes between the current version and the first
+     * of them were missed (e.g. a lost notification of another node), the collection is caught up with the database,
+     * otherwise the version would hide them from {@link #checkVersions()}.
+     */
+    private void advanceVersion(final String apiKey, final EmbeddingCollection collection, final CacheDeltaDto delta) {
+        if (!collection.advanceDatabaseVersion(delta.getFromVersion(), delta.getToVersion())) {
+            log.info("Embeddings of a model missed changes before version {}, updating them", delta.getFromVersion());
+            tryCatchUp(apiKey, collection);
+        }
+    }
+
+    private void tryCatchUp(final String apiKey, final EmbeddingCollection collection) {
+        try {
+            catchUp(apiKey, collection);
+        } catch (RuntimeException e) {
+            // the version is left behind, the next check tries again
+            log.warn("Couldn't update outdated embeddings of a model: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies changes made in the database since the collection was loaded, comparing its embeddings with
+     * the database ones. Only added and moved embeddings are fetched.
+     */
+    private void catchUp(final String apiKey, final EmbeddingCollection collection) {
+        val version = embeddingService.getCollectionVersion(apiKey);
+        val current = embeddingService.listEmbeddings(apiKey, null, Pageable.unpaged()).getContent();
+
+        val snapshot = collection.snapshot();
+        val cached = new HashMap<UUID, EmbeddingProjection>(snapshot.getSize() * 2);
+        for (int row = 0; row < snapshot.getSize(); row++) {
+            val projection = snapshot.getProjection(row);
+            if (projection != null) {
+                cached.put(projection.embeddingId(), projection);
+            }
+        }
+
+        val added = new ArrayList<UUID>();
+        for (val projection : current) {
+            val cachedProjection = cached.remove(projection.embeddingId());
+            if (cachedProjection == null) {
+                added.add(projection.embeddingId());
+            } else if (!cachedProjection.subjectName().equals(projection.subjectName())) {
+                // renamed or moved to another subject
+                collection.removeEmbedding(projection.embeddingId());
+                added.add(projection.embeddingId());
+            }
+        }
+        cached.keySet().forEach(collection::removeEmbedding);
+        if (!added.isEmpty()) {
+            embeddingService.getEnhancedEmbeddingProjections(apiKey, added).forEach(collection::addEmbedding);
+        }
+
+        collection.updateDatabaseVersion(version);
+        reweigh(apiKey, collection);
+        log.info("Outdated embeddings of a model updated: {} added, {} removed", added.size(), cached.size());
+    }
+
+    /**
+     * Moves the collection between the cache and {@link #oversized} if its weight crossed the budget.
+     */
+    private void reweigh(final String apiKey, final EmbeddingCollection collection) {
+        val isOversized = isOversized(collection);
+        if (oversized.getIfPresent(apiKey) == collection) {
+            if (!isOversized && oversized.asMap().remove(apiKey, collection)) {
+                cache.put(apiKey, collection);
+            }
+        } else if (isOversized) {
+            if (cache.asMap().remove(apiKey, collection)) {
+                keepOversized(apiKey, collection);
+            }
+        } else {
+            // the weight is taken on insertion only, so the entry is put again to weigh it after changes
+            cache.asMap().replace(apiKey, collection, collection);
+        }
+    }
+
+    private EmbeddingCollection getIfPresent(final String apiKey) {
+        val cached = cache.getIfPresent(apiKey);
+
+        return cached != null ? cached : oversized.getIfPresent(apiKey);
+    }
+
+    private Map<String, EmbeddingCollection> getAll() {
+        val all = new HashMap<>(cache.asMap());
+        all.putAll(oversized.asMap());
+
+        return all;
+    }
+
+    private boolean isOversized(final EmbeddingCollection collection) {
+        return weightInKb(collection) > cacheMaxWeightKb;
+    }
+
+    private void keepOversized(final String apiKey, final EmbeddingCollection collection) {
+        log.warn(
+                "Embeddings of a model take {} MB, more than the whole cache budget of {} MB, they are kept out of the budget",
+                collection.getResidentBytes() / BYTES_IN_KB / BYTES_IN_KB,
+                cacheMaxWeightKb / BYTES_IN_KB
+        );
+        oversized.put(apiKey, collection);
+    }
+
+    private static int weightInKb(final EmbeddingCollection collection) {
+        return (int) Math.min(Integer.MAX_VALUE, collection.getResidentBytes() / BYTES_IN_KB);
     }
 
     private void notifyCacheEvent(String event, String apiKey) {
-        CacheActionDto cacheActionDto = new CacheActionDto(event, apiKey, SERVER_UUID);
+        notifyCacheEvent(event, apiKey, null);
+    }
+
+    private void notifyCacheEvent(String event, String apiKey, CacheDeltaDto delta) {
+        // numbered by the sender, merged changes get one number
+        CacheActionDto cacheActionDto = new CacheActionDto(event, apiKey, SERVER_UUID, null, delta);
         notificationSenderService.notifyCacheChange(cacheActionDto);
     }
 }
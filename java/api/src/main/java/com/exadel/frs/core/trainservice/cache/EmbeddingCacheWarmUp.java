@@ -0,0 +1,100 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import static com.exadel.frs.commonservice.enums.ModelType.RECOGNITION;
+import com.exadel.frs.commonservice.repository.ModelStatisticRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads embeddings of the most requested models (by {@code model_statistic}) into the cache on startup, so the first
+ * requests after a deploy don't pay for loading. Application runners complete before the application reports
+ * readiness, the time budget keeps a slow database from delaying it too much.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class EmbeddingCacheWarmUp implements ApplicationRunner {
+
+    private final ModelStatisticRepository statisticRepository;
+    private final EmbeddingCacheProvider embeddingCacheProvider;
+
+    @Value("${app.recognition.warm-up.enabled}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of models to load.
+     */
+    @Value("${app.recognition.warm-up.models}")
+    private int models;
+
+    /**
+     * Statistics of this number of last days is used to pick the models.
+     */
+    @Value("${app.recognition.warm-up.period-days}")
+    private int periodDays;
+
+    @Value("${app.recognition.warm-up.threads}")
+    private int threads;
+
+    @Value("${app.recognition.warm-up.timeout-seconds}")
+    private long timeoutSeconds;
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        if (!enabled || models <= 0) {
+            return;
+        }
+
+        val since = LocalDateTime.now(ZoneOffset.UTC).minusDays(periodDays);
+        val apiKeys = statisticRepository.findMostRequestedApiKeys(RECOGNITION, since, PageRequest.of(0, models));
+        if (apiKeys.isEmpty()) {
+            return;
+        }
+
+        log.info("Warming up embeddings cache for {} models", apiKeys.size());
+        val start = System.currentTimeMillis();
+        val executor = Executors.newFixedThreadPool(
+                Math.max(1, threads),
+                new ThreadFactoryBuilder().setNameFormat("embedding-warm-up-%d").setDaemon(true).build()
+        );
+        try {
+            val loads = apiKeys.stream()
+                               .map(apiKey -> CompletableFuture.runAsync(() -> warmUp(apiKey), executor))
+                               .toArray(CompletableFuture[]::new);
+
+            CompletableFuture.allOf(loads).get(timeoutSeconds, TimeUnit.SECONDS);
+            log.info("Embeddings cache warmed up in {} ms", System.currentTimeMillis() - start);
+        } catch (TimeoutException e) {
+            log.warn("Embeddings cache warm-up didn't finish in {} s, the rest of models are loaded in background", timeoutSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Embeddings cache warm-up failed", e.getCause());
+        } finally {
+            // loads in progress are not interrupted, they are let to finish
+            executor.shutdown();
+        }
+    }
+
+    private void warmUp(final String apiKey) {
+        try {
+            embeddingCacheProvider.warmUp(apiKey);
+        } catch (RuntimeException e) {
+            log.warn("Couldn't warm up embeddings of a model: {}", e.getMessage());
+        }
+    }
+}
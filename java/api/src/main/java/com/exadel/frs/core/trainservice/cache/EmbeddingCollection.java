@@ -4,111 +4,333 @@ import com.exadel.frs.commonservice.entity.Embedding;
 import com.exadel.frs.commonservice.exception.IncorrectImageIdException;
 import com.exadel.frs.commonservice.projection.EmbeddingProjection;
 import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
+import com.exadel.frs.core.trainservice.cache.EmbeddingSnapshot.ProjectionChange;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.val;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.indexing.NDArrayIndex;
 
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
+/**
+ * Embeddings of one model, stored as rows of a matrix of the configured {@link EmbeddingPrecision} that grows by doubling its capacity, so appending an embedding
+ * costs O(d) amortised instead of copying the whole matrix.
+ * <p>
+ * Removed embeddings are only tombstoned (their row loses its projection), rows are physically dropped by
+ * a background compaction once tombstones take a noticeable part of the matrix.
+ * <p>
+ * Writers are serialized and publish a new {@link EmbeddingSnapshot} after every change, readers never lock
+ * and never copy the matrix, see {@link #snapshot()}. Renames and removals don't copy anything either, they are
+ * recorded as versioned changes of rows, so published snapshots keep seeing the rows as they were.
+ */
 public class EmbeddingCollection {
 
-    private final BiMap<EmbeddingProjection, Integer> projection2Index;
+    private static final int MIN_CAPACITY = 16;
+    private static final int COMPACTION_MIN_TOMBSTONES = 64;
+    private static final int COMPACTION_TOMBSTONES_RATIO = 4; // compact when more than 1/4 of rows are tombstones
+    // projection with its subject name, id, change slot and entry of the row map, a rough estimation
+    private static final int ROW_OVERHEAD_BYTES = 168;
+
+    private static final ExecutorService COMPACTION_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("embedding-compaction-%d").setDaemon(true).build()
+    );
+
+    private final EmbeddingPrecision precision;
     private INDArray embeddings;
+    private INDArray squaredNorms;
+    // written once per row, renames and removals go to changes
+    private EmbeddingProjection[] projections;
+    private ProjectionChange[] changes;
+    // ids of removed embeddings are kept until compaction, see EmbeddingSnapshot#findRow
+    private Map<UUID, Integer> rowsByEmbeddingId;
+    private int size;
+    private int tombstones;
+    private long version;
+    private boolean compactionScheduled;
+    private HnswIndex index;
+    private Runnable compactionListener = () -> {
+    };
+
+    private volatile EmbeddingSnapshot snapshot;
+    private volatile long databaseVersion;
+
+    private EmbeddingCollection(
+            final INDArray embeddings,
+            final EmbeddingProjection[] projections,
+            final EmbeddingPrecision precision
+    ) {
+        this.precision = precision;
+        this.embeddings = embeddings;
+        this.projections = projections;
+        this.changes = new ProjectionChange[projections.length];
+        this.size = projections.length;
+        this.squaredNorms = size == 0 ? Nd4j.empty(precision.getDataType()) : squaredNorms(embeddings);
+        this.rowsByEmbeddingId = new ConcurrentHashMap<>(Math.max(MIN_CAPACITY, size * 2));
+        for (int row = 0; row < size; row++) {
+            putRow(rowsByEmbeddingId, projections[row], row);
+        }
+
+        publish();
+    }
 
     public static EmbeddingCollection from(final Stream<EnhancedEmbeddingProjection> stream) {
+        return from(stream, EmbeddingPrecision.DOUBLE);
+    }
+
+    public static EmbeddingCollection from(final Stream<EnhancedEmbeddingProjection> stream, final EmbeddingPrecision precision) {
         val rawEmbeddings = new LinkedList<double[]>();
-        val projections2Index = new HashMap<EmbeddingProjection, Integer>();
-        val index = new AtomicInteger(); // just to bypass 'final' variables restriction inside lambdas
+        val projections = new ArrayList<EmbeddingProjection>();
 
         stream.forEach(projection -> {
-            projections2Index.put(EmbeddingProjection.from(projection), index.getAndIncrement());
+            projections.add(EmbeddingProjection.from(projection));
             rawEmbeddings.add(projection.embeddingData());
         });
 
+        val dataType = precision.getDataType();
+
         return new EmbeddingCollection(
-                HashBiMap.create(projections2Index),
                 rawEmbeddings.isEmpty()
-                        ? Nd4j.empty()
-                        : Nd4j.create(rawEmbeddings.toArray(double[][]::new))
+                        ? Nd4j.empty(dataType)
+                        : Nd4j.create(rawEmbeddings.toArray(double[][]::new)).castTo(dataType),
+                projections.toArray(EmbeddingProjection[]::new),
+                precision
         );
     }
 
+    /**
+     * Collection of the given rows of a stored matrix plus embeddings which are absent in it.
+     *
+     * @param stored      matrix read from {@link EmbeddingCollectionStore}, of the precision data type
+     * @param rows        rows of the stored matrix to keep
+     * @param projections projections of the kept rows, in the same order
+     * @param delta       embeddings to append
+     */
+    static EmbeddingCollection restore(
+            final INDArray stored,
+            final int[] rows,
+            final EmbeddingProjection[] projections,
+            final List<EnhancedEmbeddingProjection> delta,
+            final EmbeddingPrecision precision
+    ) {
+        val dataType = precision.getDataType();
+        val size = rows.length + delta.size();
+        val allProjections = Arrays.copyOf(projections, size);
+        if (size == 0) {
+            return new EmbeddingCollection(Nd4j.empty(dataType), allProjections, precision);
+        }
+
+        if (delta.isEmpty() && rows.length == stored.size(0) && isSequence(rows)) {
+            // nothing changed since the matrix was stored, it's used as is
+            return new EmbeddingCollection(stored, allProjections, precision);
+        }
+
+        val dimension = rows.length > 0 ? stored.size(1) : delta.get(0).embeddingData().length;
+        val matrix = Nd4j.create(dataType, size, dimension);
+        // runs of consecutive rows are copied at once, without a temporary matrix of the pulled rows
+        for (int start = 0, end; start < rows.length; start = end) {
+            end = start + 1;
+            while (end < rows.length && rows[end] == rows[end - 1] + 1) {
+                end++;
+            }
+            matrix.get(NDArrayIndex.interval(start, end), NDArrayIndex.all())
+                  .assign(stored.get(NDArrayIndex.interval(rows[start], rows[start] + end - start), NDArrayIndex.all()));
+        }
+        for (int i = 0; i < delta.size(); i++) {
+            matrix.putRow(rows.length + i, Nd4j.create(delta.get(i).embeddingData()).castTo(dataType));
+            allProjections[rows.length + i] = EmbeddingProjection.from(delta.get(i));
+        }
+
+        return new EmbeddingCollection(matrix, allProjections, precision);
+    }
+
+    /**
+     * @return version of embeddings in the database the collection is up to date with, see
+     * {@link com.exadel.frs.commonservice.entity.EmbeddingCollectionVersion}
+     */
+    public long getDatabaseVersion() {
+        return databaseVersion;
+    }
+
+    /**
+     * Marks the collection as up to date with the given database version, if it's newer than the current one.
+     * Only for versions taken before the collection was compared with all the embeddings of the database.
+     */
+    public synchronized void updateDatabaseVersion(final long version) {
+        databaseVersion = Math.max(databaseVersion, version);
+    }
+
+    /**
+     * Marks the collection as up to date with the versions of a change which was just applied to it.
+     *
+     * @param fromVersion the first version made by the change
+     * @param toVersion   the last version made by the change
+     * @return {@code false} if the versions don't follow the current one, i.e. some changes before them were missed,
+     * the version is left as is then, so that the collection is still seen as outdated
+     */
+    public synchronized boolean advanceDatabaseVersion(final long fromVersion, final long toVersion) {
+        if (fromVersion > databaseVersion + 1) {
+            return false;
+        }
+
+        databaseVersion = Math.max(databaseVersion, toVersion);
+        return true;
+    }
+
+    /**
+     * Invoked after every compaction, out of the lock of the collection.
+     */
+    public synchronized void setCompactionListener(final Runnable compactionListener) {
+        this.compactionListener = compactionListener;
+    }
+
+    /**
+     * Current version of the collection. Cheap, lock free, should be taken once per request and used for all reads.
+     */
+    public EmbeddingSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Fills the given index with all embeddings of the collection, after that the index is kept in sync
+     * with every add/remove/rename of the collection.
+     */
+    public synchronized void attachIndex(final HnswIndex index) {
+        for (int row = 0; row < size; row++) {
+            val projection = current(row);
+            if (projection != null) {
+                index.add(projection, embeddings.getRow(row).toDoubleVector());
+            }
+        }
+        this.index = index;
+    }
+
+    /**
+     * @return approximate nearest neighbour index of the collection or {@code null} if it wasn't attached
+     */
+    public HnswIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * NOTE: rows of removed embeddings are absent in the map until compaction, so it may have gaps.
+     *
+     * @return row index to projection map
+     */
     public Map<Integer, EmbeddingProjection> getIndexMap() {
-        // returns index to projection map
-        return Collections.unmodifiableMap(projection2Index.inverse());
+        val current = snapshot;
+        val indexMap = new HashMap<Integer, EmbeddingProjection>();
+        for (int row = 0; row < current.getSize(); row++) {
+            val projection = current.getProjection(row);
+            if (projection != null) {
+                indexMap.put(row, projection);
+            }
+        }
+
+        return Collections.unmodifiableMap(indexMap);
     }
 
     public Set<EmbeddingProjection> getProjections() {
-        return Collections.unmodifiableSet(projection2Index.keySet());
-    }
+        val current = snapshot;
 
-    private int getSize() {
-        // should be invoked only if underlying array is not empty!
-        return (int) embeddings.size(0);
+        return IntStream.range(0, current.getSize())
+                        .mapToObj(current::getProjection)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toUnmodifiableSet());
     }
 
     /**
      * NOTE: current method returns COPY! Each time you invoke it, memory consumed, be careful!
+     * Rows of removed, but not yet compacted embeddings are present in the copy, use {@link #getIndexMap()} to skip them.
+     * For reads without copying use {@link #snapshot()}.
      *
      * @return copy of underlying embeddings array.
      */
     public INDArray getEmbeddings() {
-        return embeddings.dup();
+        val current = snapshot;
+
+        return current.isEmpty() ? Nd4j.empty(precision.getDataType()) : current.getEmbeddings().dup();
     }
 
     public synchronized void updateSubjectName(String oldSubjectName, String newSubjectName) {
-        final List<EmbeddingProjection> projections = projection2Index.keySet()
-                .stream()
-                .filter(projection -> projection.subjectName().equals(oldSubjectName))
-                .toList();
+        var renamed = false;
+        for (int row = 0; row < size; row++) {
+            val projection = current(row);
+            if (projection != null && projection.subjectName().equals(oldSubjectName)) {
+                change(row, projection.withNewSubjectName(newSubjectName));
+                renamed = true;
+            }
+        }
+        if (!renamed) {
+            return;
+        }
+
+        if (index != null) {
+            index.updateSubjectName(oldSubjectName, newSubjectName);
+        }
 
-        projections.forEach(projection -> projection2Index.put(
-                projection.withNewSubjectName(newSubjectName),
-                projection2Index.remove(projection)
-        ));
+        publish();
     }
 
     public synchronized EmbeddingProjection addEmbedding(final Embedding embedding) {
-        final var projection = EmbeddingProjection.from(embedding);
+        return addEmbedding(EmbeddingProjection.from(embedding), embedding.getEmbedding());
+    }
 
-        final INDArray array = Nd4j.create(new double[][]{embedding.getEmbedding()});
+    /**
+     * Same as {@link #addEmbedding(Embedding)}, but does nothing if the embedding is already in the collection,
+     * so a change received from another node may be applied more than once.
+     *
+     * @return projection of the added embedding or {@code null} if it was already present
+     */
+    public synchronized EmbeddingProjection addEmbedding(final EnhancedEmbeddingProjection embedding) {
+        val row = rowsByEmbeddingId.get(embedding.embeddingId());
+        if (row != null && current(row) != null) {
+            return null;
+        }
 
-        embeddings = embeddings.isEmpty()
-                ? array
-                : Nd4j.concat(0, embeddings, array);
+        return addEmbedding(EmbeddingProjection.from(embedding), embedding.embeddingData());
+    }
 
-        projection2Index.put(
-                projection,
-                getSize() - 1
-        );
+    private EmbeddingProjection addEmbedding(final EmbeddingProjection projection, final double[] row) {
+        ensureCapacity(size + 1, row.length);
+        embeddings.putRow(size, Nd4j.create(row).castTo(precision.getDataType()));
+        squaredNorms.putScalar(size, Arrays.stream(row).map(value -> value * value).sum());
+        projections[size] = projection;
+        putRow(rowsByEmbeddingId, projection, size);
+        size++;
+
+        if (index != null) {
+            index.add(projection, row);
+        }
+
+        publish();
 
         return projection;
     }
 
     public synchronized Collection<EmbeddingProjection> removeEmbeddingsBySubjectName(String subjectName) {
-        // not efficient at ALL! review current approach!
-
-        final List<EmbeddingProjection> toRemove = projection2Index.keySet().stream()
-                .filter(projection -> projection.subjectName().equals(subjectName))
-                .toList();
+        final int[] rows = IntStream.range(0, size)
+                .filter(row -> current(row) != null && current(row).subjectName().equals(subjectName))
+                .toArray();
+        final List<EmbeddingProjection> toRemove = Arrays.stream(rows).mapToObj(this::current).toList();
 
-        toRemove.forEach(this::removeEmbedding); // <- rethink
+        removeRows(rows);
 
         return toRemove;
     }
@@ -117,60 +339,233 @@ public class EmbeddingCollection {
         return removeEmbedding(EmbeddingProjection.from(embedding));
     }
 
+    /**
+     * @return projection of the removed embedding or {@code null} if there was no such embedding
+     */
+    public synchronized EmbeddingProjection removeEmbedding(UUID embeddingId) {
+        val row = rowsByEmbeddingId.get(embeddingId);
+
+        val projection = row == null ? null : current(row);
+
+        return projection == null ? null : removeEmbedding(projection);
+    }
+
     public synchronized EmbeddingProjection removeEmbedding(EmbeddingProjection projection) {
-        if (projection2Index.isEmpty()) {
+        val row = projection.embeddingId() == null ? null : rowsByEmbeddingId.get(projection.embeddingId());
+        if (row == null || !projection.equals(current(row))) {
             return null;
         }
 
-        var index = projection2Index.remove(projection);
+        removeRows(new int[]{row});
 
-        // remove embedding by concatenating sub lists [0, index) + [index + 1, size),
-        // thus size of resulting array is decreased by one
-        embeddings = Nd4j.concat(
-                0,
-                embeddings.get(NDArrayIndex.interval(0, index), NDArrayIndex.all()),
-                embeddings.get(NDArrayIndex.interval(index + 1, getSize()), NDArrayIndex.all())
-        );
+        return projection;
+    }
 
-        // shifting (-1) all indexes, greater than current one
-        projection2Index.entrySet()
-                .stream()
-                .filter(entry -> entry.getValue() > index)
-                .sorted(Map.Entry.comparingByValue())
-                .forEach(e -> projection2Index.replace(e.getKey(), e.getValue(), e.getValue() - 1));
+    /**
+     * Tombstones the given rows, published snapshots keep seeing them.
+     */
+    private void removeRows(final int[] rows) {
+        if (rows.length == 0) {
+            return;
+        }
 
-        return projection;
+        for (val row : rows) {
+            // the row stays in the matrix until compaction, it's just not referenced anymore
+            val embeddingId = current(row).embeddingId();
+            change(row, null);
+            if (embeddingId != null && index != null) {
+                index.remove(embeddingId);
+            }
+        }
+        tombstones += rows.length;
+        scheduleCompactionIfNeeded();
+
+        publish();
     }
 
-    public synchronized Optional<INDArray> getRawEmbeddingById(UUID embeddingId) {
-        return findByEmbeddingId(
-                embeddingId,
-                // return duplicated row
-                entry -> embeddings.getRow(entry.getValue(), true).dup()
-        );
+    /**
+     * Drops rows of removed embeddings and shrinks the matrix. Normally invoked in background, see {@link #removeEmbedding}.
+     * Snapshots taken before compaction stay valid, compaction never touches arrays they refer to.
+     */
+    public void compact() {
+        Runnable listener;
+        synchronized (this) {
+            if (!compactRows()) {
+                return;
+            }
+            listener = compactionListener;
+        }
+
+        listener.run();
+    }
+
+    /**
+     * @return {@code false} if there was nothing to compact
+     */
+    private boolean compactRows() {
+        compactionScheduled = false;
+        if (tombstones == 0) {
+            return false;
+        }
+
+        val liveRows = new int[size - tombstones];
+        int live = 0;
+        for (int row = 0; row < size; row++) {
+            if (current(row) != null) {
+                liveRows[live++] = row;
+            }
+        }
+
+        val capacity = Math.max(MIN_CAPACITY, live + live / 2);
+        val compactedProjections = new EmbeddingProjection[capacity];
+        val compactedRows = new ConcurrentHashMap<UUID, Integer>(capacity * 2);
+        for (int row = 0; row < live; row++) {
+            compactedProjections[row] = current(liveRows[row]);
+            putRow(compactedRows, compactedProjections[row], row);
+        }
+
+        if (live == 0) {
+            embeddings = Nd4j.empty(precision.getDataType());
+            squaredNorms = Nd4j.empty(precision.getDataType());
+        } else {
+            val liveEmbeddings = Nd4j.pullRows(embeddings, 1, liveRows);
+            val matrix = Nd4j.create(precision.getDataType(), capacity, embeddings.size(1));
+            matrix.get(NDArrayIndex.interval(0, live), NDArrayIndex.all()).assign(liveEmbeddings);
+            embeddings = matrix;
+            squaredNorms = Nd4j.create(precision.getDataType(), capacity);
+            squaredNorms.get(NDArrayIndex.interval(0, live)).assign(squaredNorms(liveEmbeddings));
+        }
+
+        projections = compactedProjections;
+        changes = new ProjectionChange[capacity];
+        rowsByEmbeddingId = compactedRows;
+        size = live;
+        tombstones = 0;
+
+        publish();
+
+        return true;
     }
 
-    public synchronized Optional<String> getSubjectNameByEmbeddingId(UUID embeddingId) {
-        return findByEmbeddingId(
-                embeddingId,
-                entry -> entry.getKey().subjectName()
+    /**
+     * Estimated memory taken by the collection, counts the allocated capacity, not only the rows in use,
+     * and the attached index, which keeps its own copies of the embeddings.
+     */
+    public synchronized long getResidentBytes() {
+        val elementSize = precision.getDataType().width();
+        val capacity = projections.length;
+        val dimension = embeddings.isEmpty() ? 0 : embeddings.size(1);
+        val indexBytes = index == null ? 0 : index.getResidentBytes();
+
+        return capacity * (dimension + 1) * elementSize + (long) capacity * ROW_OVERHEAD_BYTES + indexBytes;
+    }
+
+    public Optional<INDArray> getRawEmbeddingById(UUID embeddingId) {
+        val current = snapshot;
+
+        // return duplicated row, the matrix is shared with other snapshots
+        return Optional.of(current.getEmbeddings().getRow(findRow(current, embeddingId), true).dup());
+    }
+
+    public Optional<String> getSubjectNameByEmbeddingId(UUID embeddingId) {
+        val current = snapshot;
+
+        return Optional.of(current.getProjection(findRow(current, embeddingId)).subjectName());
+    }
+
+    private void ensureCapacity(final int required, final int dimension) {
+        if (embeddings.isEmpty()) {
+            val capacity = Math.max(MIN_CAPACITY, required);
+            embeddings = Nd4j.create(precision.getDataType(), capacity, dimension);
+            squaredNorms = Nd4j.create(precision.getDataType(), capacity);
+            projections = Arrays.copyOf(projections, capacity);
+            changes = Arrays.copyOf(changes, capacity);
+            return;
+        }
+
+        val capacity = (int) embeddings.size(0);
+        if (capacity >= required) {
+            return;
+        }
+
+        // snapshots keep referring to the old matrix, so it's never modified after reallocation
+        val grown = Nd4j.create(precision.getDataType(), Math.max(capacity * 2L, required), embeddings.size(1));
+        grown.get(NDArrayIndex.interval(0, size), NDArrayIndex.all())
+             .assign(embeddings.get(NDArrayIndex.interval(0, size), NDArrayIndex.all()));
+        embeddings = grown;
+        val grownNorms = Nd4j.create(precision.getDataType(), grown.size(0));
+        grownNorms.get(NDArrayIndex.interval(0, size)).assign(squaredNorms.get(NDArrayIndex.interval(0, size)));
+        squaredNorms = grownNorms;
+        projections = Arrays.copyOf(projections, (int) grown.size(0));
+        changes = Arrays.copyOf(changes, (int) grown.size(0));
+    }
+
+    private void publish() {
+        snapshot = new EmbeddingSnapshot(
+                size == 0 ? Nd4j.empty(precision.getDataType()) : embeddings.get(NDArrayIndex.interval(0, size), NDArrayIndex.all()),
+                size == 0 ? Nd4j.empty(precision.getDataType()) : squaredNorms.get(NDArrayIndex.interval(0, size)),
+                projections,
+                changes,
+                rowsByEmbeddingId,
+                size,
+                ++version
         );
     }
 
-    private <T> Optional<T> findByEmbeddingId(UUID embeddingId, Function<Map.Entry<EmbeddingProjection, Integer>, T> func) {
-        validImageId(embeddingId);
+    /**
+     * @return current projection of the row or {@code null} if it was removed
+     */
+    private EmbeddingProjection current(final int row) {
+        val change = changes[row];
+
+        return change == null ? projections[row] : change.projection();
+    }
+
+    /**
+     * Records a new projection of the row for the snapshot which is published next, older snapshots keep the previous one.
+     */
+    private void change(final int row, final EmbeddingProjection projection) {
+        changes[row] = new ProjectionChange(projection, version + 1, changes[row]);
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (compactionScheduled
+                || tombstones < COMPACTION_MIN_TOMBSTONES
+                || tombstones * COMPACTION_TOMBSTONES_RATIO < size) {
+            return;
+        }
+
+        compactionScheduled = true;
+        COMPACTION_EXECUTOR.execute(this::compact);
+    }
+
+    private static boolean isSequence(final int[] rows) {
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != i) {
+                return false;
+            }
+        }
+
+        return true;
+    }
 
-        return Optional.ofNullable(projection2Index.entrySet()
-                .stream()
-                .filter(entry ->  embeddingId.equals(entry.getKey().embeddingId()))
-                .findFirst()
-                .map(func)
-                .orElseThrow(IncorrectImageIdException::new));
+    private static INDArray squaredNorms(final INDArray rows) {
+        return rows.mul(rows).sum(1);
     }
 
-    private void validImageId(UUID embeddingId) {
+    private static void putRow(final Map<UUID, Integer> rowsByEmbeddingId, final EmbeddingProjection projection, final int row) {
+        // embeddings which are not persisted yet have no id, there is no way to look them up anyway
+        if (projection.embeddingId() != null) {
+            rowsByEmbeddingId.put(projection.embeddingId(), row);
+        }
+    }
+
+    private static int findRow(final EmbeddingSnapshot snapshot, final UUID embeddingId) {
         if (embeddingId == null) {
             throw new IncorrectImageIdException();
         }
+
+        return snapshot.findRow(embeddingId)
+                       .orElseThrow(IncorrectImageIdException::new);
     }
 }
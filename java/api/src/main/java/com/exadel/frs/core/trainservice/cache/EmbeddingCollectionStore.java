@@ -0,0 +1,340 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import com.exadel.frs.commonservice.projection.EmbeddingProjection;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.apache.commons.lang3.StringUtils;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local files with embedding collections, one per model, so that a restarted node reads the matrix from disk instead of
+ * streaming every embedding from the database. A stored collection may be outdated, it's up to the caller to check it
+ * against the database, see {@link EmbeddingCacheProvider}.
+ * <p>
+ * File layout (big-endian): magic, format version, data type of the matrix, database version of the collection,
+ * calculators the embeddings were made with, size, dimension, then {@code size} rows of the id/subject table and
+ * the {@code [size, dimension]} matrix.
+ * <p>
+ * Disabled unless {@code app.recognition.snapshot.dir} is set.
+ */
+@Component
+@Slf4j
+public class EmbeddingCollectionStore {
+
+    private static final int MAGIC = 0x46525345;
+    private static final int FORMAT_VERSION = 2;
+    private static final String EXTENSION = ".emb";
+    // written in place of a missing id, random UUIDs are never all zeros
+    private static final UUID NO_ID = new UUID(0, 0);
+
+    private static final ExecutorService WRITE_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("embedding-store-%d").setDaemon(true).build()
+    );
+
+    @Value("${app.recognition.snapshot.dir}")
+    private String dir;
+
+    public boolean isEnabled() {
+        return StringUtils.isNotBlank(dir);
+    }
+
+    /**
+     * @return stored collection of the model or empty if there is none or its matrix is of another data type
+     */
+    public Optional<StoredCollection> read(final String apiKey, final EmbeddingPrecision precision) {
+        val file = file(apiKey);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try (val channel = FileChannel.open(file)) {
+            val in = new ChunkReader(channel);
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format");
+            }
+            if (!precision.getDataType().name().equals(in.getString())) {
+                return Optional.empty();
+            }
+
+            val databaseVersion = in.getLong();
+            val calculators = new HashSet<String>();
+            for (int i = in.getInt(); i > 0; i--) {
+                calculators.add(in.getString());
+            }
+
+            val size = in.getInt();
+            val dimension = in.getInt();
+            if (size < 0 || dimension < 0 || (long) dimension * precision.getDataType().width() > ChunkReader.CHUNK_SIZE) {
+                throw new IOException("Wrong matrix shape " + size + "x" + dimension);
+            }
+
+            val projections = new EmbeddingProjection[size];
+            for (int row = 0; row < size; row++) {
+                val id = new UUID(in.getLong(), in.getLong());
+                projections[row] = new EmbeddingProjection(NO_ID.equals(id) ? null : id, in.getString());
+            }
+
+            return Optional.of(new StoredCollection(
+                    readMatrix(in, size, dimension, precision),
+                    projections,
+                    calculators,
+                    databaseVersion
+            ));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Couldn't read stored embeddings {}, the file is removed: {}", file, e.getMessage());
+            delete(file);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores live rows of the collection with its database version in background, replacing the previously stored ones.
+     *
+     * @param calculators calculators the embeddings of the collection were made with
+     * @return completion of the write, it never fails, errors are only logged
+     */
+    public CompletableFuture<Void> write(final String apiKey, final EmbeddingCollection collection, final Set<String> calculators) {
+        // taken before the rows, so the stored version is never newer than them
+        val databaseVersion = collection.getDatabaseVersion();
+        val snapshot = collection.snapshot();
+        return CompletableFuture.runAsync(() -> {
+            val file = file(apiKey);
+            val temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Files.createDirectories(file.getParent());
+                write(temp, snapshot, databaseVersion, calculators);
+                // readers never see a half-written file
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Couldn't store embeddings to {}: {}", file, e.getMessage());
+                delete(temp);
+            }
+        }, WRITE_EXECUTOR);
+    }
+
+    public void delete(final String apiKey) {
+        if (isEnabled()) {
+            delete(file(apiKey));
+        }
+    }
+
+    private static void write(
+            final Path file,
+            final EmbeddingSnapshot snapshot,
+            final long databaseVersion,
+            final Set<String> calculators
+    ) throws IOException {
+        val liveRows = new int[snapshot.getSize()];
+        val liveProjections = new EmbeddingProjection[snapshot.getSize()];
+        var size = 0;
+        for (int row = 0; row < snapshot.getSize(); row++) {
+            // rows of removed embeddings stay in the matrix until compaction
+            val projection = snapshot.getProjection(row);
+            if (projection != null) {
+                liveRows[size] = row;
+                liveProjections[size++] = projection;
+            }
+        }
+
+        val embeddings = snapshot.getEmbeddings();
+        val dimension = size == 0 ? 0 : (int) embeddings.columns();
+
+        try (val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, embeddings.dataType().name());
+            out.writeLong(databaseVersion);
+            out.writeInt(calculators.size());
+            for (val calculator : calculators) {
+                writeString(out, calculator);
+            }
+            out.writeInt(size);
+            out.writeInt(dimension);
+
+            for (int i = 0; i < size; i++) {
+                val id = Optional.ofNullable(liveProjections[i].embeddingId()).orElse(NO_ID);
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+                writeString(out, liveProjections[i].subjectName());
+            }
+
+            if (size == 0) {
+                return;
+            }
+
+            // live rows are pulled and written by chunks, each chunk is a single bulk copy
+            val chunkRows = chunkRows(dimension, embeddings.dataType());
+            val bytes = ByteBuffer.allocate(chunkRows * dimension * embeddings.dataType().width());
+            for (int start = 0; start < size; start += chunkRows) {
+                val end = Math.min(start + chunkRows, size);
+                // a new [rows, dimension] array, its buffer holds exactly the pulled rows
+                val rows = Nd4j.pullRows(embeddings, 1, Arrays.copyOfRange(liveRows, start, end));
+                bytes.clear();
+                if (embeddings.dataType() == DataType.DOUBLE) {
+                    bytes.asDoubleBuffer().put(rows.data().asDouble());
+                } else {
+                    bytes.asFloatBuffer().put(rows.data().asFloat());
+                }
+                out.write(bytes.array(), 0, (int) rows.length() * embeddings.dataType().width());
+            }
+        }
+    }
+
+    /**
+     * Reads the matrix by chunks of rows, each chunk is a single bulk copy into the INDArray.
+     */
+    private static INDArray readMatrix(final ChunkReader in, final int size, final int dimension, final EmbeddingPrecision precision)
+            throws IOException {
+        val dataType = precision.getDataType();
+        if (size == 0) {
+            return Nd4j.empty(dataType);
+        }
+
+        val matrix = Nd4j.create(dataType, size, dimension);
+        val chunkRows = chunkRows(dimension, dataType);
+        for (int start = 0; start < size; start += chunkRows) {
+            val count = Math.min(chunkRows, size - start);
+            val length = count * dimension;
+            val bytes = length * dataType.width();
+            val chunk = in.next(bytes);
+            final INDArray rows;
+            if (dataType == DataType.DOUBLE) {
+                val values = new double[length];
+                chunk.asDoubleBuffer().get(values);
+                rows = Nd4j.create(values, new long[]{count, dimension}, dataType);
+            } else {
+                val values = new float[length];
+                chunk.asFloatBuffer().get(values);
+                rows = Nd4j.create(values, new long[]{count, dimension}, dataType);
+            }
+            in.skip(bytes);
+            matrix.get(NDArrayIndex.interval(start, start + count), NDArrayIndex.all()).assign(rows);
+        }
+
+        return matrix;
+    }
+
+    /**
+     * @return number of rows which fit into a chunk of the reader, at least one
+     */
+    private static int chunkRows(final int dimension, final DataType dataType) {
+        return Math.max(1, ChunkReader.CHUNK_SIZE / Math.max(1, dimension * dataType.width()));
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        val bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private Path file(final String apiKey) {
+        // api keys are secrets, they don't go to file names
+        return Path.of(dir, Hashing.sha256().hashString(apiKey, UTF_8) + EXTENSION);
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Couldn't delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Sequential reader of a file of any size through a fixed buffer, unlike a mapped buffer it's not limited to 2 GB.
+     */
+    private static final class ChunkReader {
+
+        private static final int CHUNK_SIZE = 1 << 20;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+
+        private ChunkReader(final FileChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        /**
+         * @return the buffer with at least {@code bytes} bytes remaining, positioned at the next unread byte
+         */
+        private ByteBuffer next(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) {
+                        throw new BufferUnderflowException();
+                    }
+                }
+                // reads as much as fits, the rest is read on the next call
+                channel.read(buffer);
+                buffer.flip();
+            }
+
+            return buffer;
+        }
+
+        private void skip(final int bytes) {
+            buffer.position(buffer.position() + bytes);
+        }
+
+        private int getInt() throws IOException {
+            return next(Integer.BYTES).getInt();
+        }
+
+        private long getLong() throws IOException {
+            return next(Long.BYTES).getLong();
+        }
+
+        private String getString() throws IOException {
+            val length = getInt();
+            if (length < 0 || length > CHUNK_SIZE) {
+                throw new IOException("Wrong string length " + length);
+            }
+
+            val bytes = new byte[length];
+            next(length).get(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+
+    /**
+     * @param embeddings  {@code [size, dimension]} matrix of the precision data type
+     * @param projections projections of the rows of the matrix
+     * @param calculators calculators the embeddings were made with
+     * @param databaseVersion version of embeddings in the database the stored collection was up to date with
+     */
+    public record StoredCollection(
+            INDArray embeddings,
+            EmbeddingProjection[] projections,
+            Set<String> calculators,
+            long databaseVersion
+    ) {
+
+    }
+}
@@ -0,0 +1,20 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.nd4j.linalg.api.buffer.DataType;
+
+/**
+ * Storage precision of cached embeddings, set per deployment by {@code app.recognition.precision}.
+ * <p>
+ * {@link #FLOAT} takes half the memory of {@link #DOUBLE}, it's the one to use to fit more models into a node.
+ */
+@AllArgsConstructor
+@Getter
+public enum EmbeddingPrecision {
+
+    DOUBLE(DataType.DOUBLE),
+    FLOAT(DataType.FLOAT);
+
+    private final DataType dataType;
+}
@@ -0,0 +1,75 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import com.exadel.frs.commonservice.projection.EmbeddingProjection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * Read-only version of {@link EmbeddingCollection}, published on every write. Readers scan it without locks and copies.
+ * <p>
+ * The snapshot never changes. Rows of the matrix and {@code projections} are written only once, so it shares them with
+ * the collection. Renames and removals add a {@link ProjectionChange} of the row stamped with the version of the next
+ * snapshot, older snapshots skip it. Adds write only past {@code size} of published snapshots, which they never read.
+ * <p>
+ * The only exception is an embedding which is removed and added again before compaction: older snapshots don't find
+ * its old row by id anymore, though they still see it while scanning.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class EmbeddingSnapshot {
+
+    /**
+     * [size, dimension] view of the collection matrix, MUST NOT be modified.
+     */
+    @Getter
+    private final INDArray embeddings;
+    /**
+     * [size] view of squared L2 norms of the rows, MUST NOT be modified.
+     */
+    @Getter
+    private final INDArray squaredNorms;
+    private final EmbeddingProjection[] projections;
+    private final ProjectionChange[] changes;
+    private final Map<UUID, Integer> rowsByEmbeddingId;
+    @Getter
+    private final int size;
+    @Getter
+    private final long version;
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return projection of the row or {@code null} if embedding of the row was removed
+     */
+    public EmbeddingProjection getProjection(final int row) {
+        for (var change = changes[row]; change != null; change = change.previous()) {
+            if (change.version() <= version) {
+                return change.projection();
+            }
+        }
+
+        return projections[row];
+    }
+
+    public Optional<Integer> findRow(final UUID embeddingId) {
+        return Optional.ofNullable(rowsByEmbeddingId.get(embeddingId))
+                       .filter(row -> row < size && getProjection(row) != null);
+    }
+
+    /**
+     * Rename or removal of a row, made visible to snapshots since the given version. Immutable, so readers of the
+     * array slot always see it fully constructed.
+     *
+     * @param projection new projection of the row or {@code null} if it was removed
+     * @param previous   the previous change of the row, older snapshots still need it
+     */
+    record ProjectionChange(EmbeddingProjection projection, long version, ProjectionChange previous) {
+
+    }
+}
@@ -0,0 +1,208 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import com.exadel.frs.commonservice.dto.ExecutionTimeDto;
+import com.exadel.frs.commonservice.sdk.faces.exception.NoFacesFoundException;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesAge;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesBox;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesGender;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesMask;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesPose;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResult;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.PluginsVersions;
+import com.exadel.frs.core.trainservice.dto.ProcessImageParams;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Responses of the core service by image content and request parameters, so that an image sent again and again
+ * (e.g. frames of a camera which don't change) is processed by the core service once. Only the faces found in the image
+ * are cached, recognition still compares them with the current embeddings of the model.
+ * <p>
+ * "No faces found" is cached as well. Callers change the responses (e.g. scale the probabilities of the boxes), so every
+ * request gets its own copy of the cached one.
+ * <p>
+ * Disabled unless {@code app.find-faces-cache.enabled} is set.
+ */
+@Component
+@Slf4j
+public class FindFacesResponseCache {
+
+    private static final FindFacesResponse NO_FACES = new FindFacesResponse();
+
+    @Value("${app.find-faces-cache.enabled}")
+    private boolean enabled;
+
+    @Value("${app.find-faces-cache.max-size}")
+    private long maxSize;
+
+    @Value("${app.find-faces-cache.ttl}")
+    private long ttlMs;
+
+    private Cache<Key, FindFacesResponse> responses;
+
+    @PostConstruct
+    private void postConstruct() {
+        if (enabled) {
+            responses = CacheBuilder.newBuilder()
+                                    .maximumSize(maxSize)
+                                    .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                                    .build();
+        }
+    }
+
+    /**
+     * @param params     - image and parameters of the request
+     * @param calculator - whether the loader adds the calculator plugin to the face plugins of the params
+     * @param loader     - sends the request to the core service
+     * @return cached response or the one of the loader
+     * @throws NoFacesFoundException if there are no faces in the image, the same as the loader
+     */
+    public FindFacesResponse get(final ProcessImageParams params, final boolean calculator, final Supplier<FindFacesResponse> loader) {
+        if (responses == null) {
+            return loader.get();
+        }
+
+        val key = key(params, calculator);
+        if (key == null) {
+            return loader.get();
+        }
+
+        val cached = responses.getIfPresent(key);
+        if (cached == NO_FACES) {
+            throw new NoFacesFoundException();
+        } else if (cached != null) {
+            return copy(cached);
+        }
+
+        try {
+            val response = loader.get();
+            if (response != null) {
+                responses.put(key, copy(response));
+            }
+
+            return response;
+        } catch (NoFacesFoundException e) {
+            responses.put(key, NO_FACES);
+            throw e;
+        }
+    }
+
+    private static FindFacesResponse copy(final FindFacesResponse response) {
+        val versions = response.getPluginsVersions();
+        val results = response.getResult();
+
+        return new FindFacesResponse(
+                versions == null ? null : PluginsVersions.builder()
+                                                         .age(versions.getAge())
+                                                         .gender(versions.getGender())
+                                                         .pose(versions.getPose())
+                                                         .detector(versions.getDetector())
+                                                         .calculator(versions.getCalculator())
+                                                         .mask(versions.getMask())
+                                                         .build(),
+                results == null ? null : results.stream().map(FindFacesResponseCache::copy).collect(Collectors.toList())
+        );
+    }
+
+    private static FindFacesResult copy(final FindFacesResult result) {
+        val age = result.getAge();
+        val gender = result.getGender();
+        val pose = result.getPose();
+        val box = result.getBox();
+        val executionTime = result.getExecutionTime();
+        val landmarks = result.getLandmarks();
+        val mask = result.getMask();
+
+        return FindFacesResult.builder()
+                              .age(age == null ? null : new FacesAge().setProbability(age.getProbability())
+                                                                      .setHigh(age.getHigh())
+                                                                      .setLow(age.getLow()))
+                              .gender(gender == null ? null : new FacesGender().setProbability(gender.getProbability())
+                                                                               .setValue(gender.getValue()))
+                              .pose(pose == null ? null : new FacesPose().setPitch(pose.getPitch())
+                                                                         .setRoll(pose.getRoll())
+                                                                         .setYaw(pose.getYaw()))
+                              .embedding(result.getEmbedding() == null ? null : result.getEmbedding().clone())
+                              .box(box == null ? null : new FacesBox().setProbability(box.getProbability())
+                                                                      .setXMax(box.getXMax())
+                                                                      .setYMax(box.getYMax())
+                                                                      .setXMin(box.getXMin())
+                                                                      .setYMin(box.getYMin()))
+                              .executionTime(executionTime == null ? null : copy(executionTime))
+                              .landmarks(landmarks == null ? null : landmarks.stream()
+                                                                             .map(point -> point == null ? null : new ArrayList<>(point))
+                                                                             .collect(Collectors.toList()))
+                              .mask(mask == null ? null : new FacesMask().setProbability(mask.getProbability())
+                                                                         .setValue(mask.getValue()))
+                              .build();
+    }
+
+    private static ExecutionTimeDto copy(final ExecutionTimeDto executionTime) {
+        val copy = new ExecutionTimeDto();
+        copy.setAge(executionTime.getAge());
+        copy.setGender(executionTime.getGender());
+        copy.setPose(executionTime.getPose());
+        copy.setDetector(executionTime.getDetector());
+        copy.setCalculator(executionTime.getCalculator());
+        copy.setMask(executionTime.getMask());
+
+        return copy;
+    }
+
+    private static Key key(final ProcessImageParams params, final boolean calculator) {
+        final HashCode image;
+        if (params.getFile() instanceof MultipartFile file) {
+            try {
+                image = Hashing.sha256().hashBytes(file.getBytes());
+            } catch (IOException e) {
+                log.debug("Couldn't read image, the response isn't cached: {}", e.getMessage());
+                return null;
+            }
+        } else if (params.getImageBase64() != null) {
+            // base64 is ASCII, its bytes are hashed without decoding
+            image = Hashing.sha256().hashString(params.getImageBase64(), US_ASCII);
+        } else {
+            return null;
+        }
+
+        return new Key(
+                image,
+                params.getFile() != null,
+                params.getLimit(),
+                params.getDetProbThreshold(),
+                params.getFacePlugins(),
+                params.getDetectFaces(),
+                calculator
+        );
+    }
+
+    /**
+     * @param multipart - whether the image is a file or base64, the hashes of their contents are not comparable
+     */
+    private record Key(
+            HashCode image,
+            boolean multipart,
+            Integer limit,
+            Double detProbThreshold,
+            String facePlugins,
+            Boolean detectFaces,
+            boolean calculator
+    ) {
+
+    }
+}
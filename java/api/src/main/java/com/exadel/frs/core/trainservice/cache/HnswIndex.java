@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.core.trainservice.cache;
+
+import com.exadel.frs.commonservice.projection.EmbeddingProjection;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Hierarchical Navigable Small World graph over the embeddings of one collection (see Malkov &amp; Yashunin).
+ * Gives approximate nearest neighbours in ~O(log N) distance computations instead of the O(N) exact scan.
+ * <p>
+ * Removed embeddings are only marked as deleted (they still route searches, but never get into results).
+ * Once deleted nodes outnumber live ones, the graph is rebuilt from live nodes in background. Searches and
+ * changes go to the old graph meanwhile, the changes are replayed on the new one before it replaces the old one.
+ */
+public class HnswIndex {
+
+    private static final long RANDOM_SEED = 42L;
+    // node object, its entry of the embedding id map and array headers, a rough estimation
+    private static final int NODE_OVERHEAD_BYTES = 128;
+
+    private static final ExecutorService REBUILD_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("hnsw-rebuild-%d").setDaemon(true).build()
+    );
+
+    private final int maxNeighbours;
+    private final int maxNeighboursLevel0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Graph graph = new Graph();
+    private boolean rebuildScheduled;
+    // changes made while the graph is being rebuilt, null if it isn't
+    private List<Consumer<Graph>> pendingChanges;
+
+    /**
+     * @param maxNeighbours  - M, the number of links of every node on upper levels (level 0 keeps 2 * M)
+     * @param efConstruction - size of the dynamic candidate list used while inserting
+     */
+    public HnswIndex(final int maxNeighbours, final int efConstruction) {
+        this.maxNeighbours = maxNeighbours;
+        this.maxNeighboursLevel0 = maxNeighbours * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(maxNeighbours);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return graph.nodes.size() - graph.deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimated memory taken by the graph, deleted nodes included, as they are kept until rebuild.
+     */
+    public long getResidentBytes() {
+        lock.readLock().lock();
+        try {
+            return graph.residentBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(final EmbeddingProjection projection, final double[] vector) {
+        lock.writeLock().lock();
+        try {
+            apply(target -> target.insert(projection, vector));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(final UUID embeddingId) {
+        lock.writeLock().lock();
+        try {
+            apply(target -> target.remove(embeddingId));
+
+            if (!rebuildScheduled && graph.deletedCount > graph.nodes.size() - graph.deletedCount) {
+                rebuildScheduled = true;
+                REBUILD_EXECUTOR.execute(this::rebuild);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateSubjectName(final String oldSubjectName, final String newSubjectName) {
+        lock.writeLock().lock();
+        try {
+            apply(target -> target.updateSubjectName(oldSubjectName, newSubjectName));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate k nearest neighbours of the query.
+     *
+     * @param query    - vector of the same dimension as indexed ones
+     * @param count    - number of neighbours to return
+     * @param efSearch - size of the dynamic candidate list, the bigger it is the better recall and the slower search
+     * @return pairs of (euclidean distance, projection), the closest first
+     */
+    public List<Pair<Double, EmbeddingProjection>> search(final double[] query, final int count, final int efSearch) {
+        lock.readLock().lock();
+        try {
+            return graph.search(query, count, efSearch);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(final Consumer<Graph> change) {
+        change.accept(graph);
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+
+    /**
+     * Builds a new graph of live nodes without holding the lock, only taking the live nodes and swapping the graphs lock it.
+     */
+    private void rebuild() {
+        List<Pair<EmbeddingProjection, double[]>> live;
+        lock.writeLock().lock();
+        try {
+            // references only, vectors are shared with the new graph
+            live = graph.liveNodes();
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Graph rebuilt = null;
+        try {
+            var built = new Graph();
+            live.forEach(node -> built.insert(node.getLeft(), node.getRight()));
+            rebuilt = built;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (rebuilt != null) {
+                    for (var change : pendingChanges) {
+                        change.accept(rebuilt);
+                    }
+                    graph = rebuilt;
+                }
+                pendingChanges = null;
+                rebuildScheduled = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Squared euclidean distance, square root is taken only for the final results.
+     */
+    private static double distance(final double[] a, final double[] b) {
+        var sum = 0.0;
+        for (var i = 0; i < a.length; i++) {
+            var diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+
+        return sum;
+    }
+
+    private record Candidate(int node, double distance) {
+
+    }
+
+    /**
+     * Nodes and links of the index, guarded by the lock of the index.
+     */
+    private final class Graph {
+
+        private final Random random = new Random(RANDOM_SEED);
+        private final List<Node> nodes = new ArrayList<>();
+        private final Map<UUID, Integer> nodeByEmbeddingId = new HashMap<>();
+        private int entryPoint = -1;
+        private int maxLevel = -1;
+        private int deletedCount;
+        private long residentBytes;
+
+        private void remove(final UUID embeddingId) {
+            var nodeId = nodeByEmbeddingId.remove(embeddingId);
+            if (nodeId == null) {
+                return;
+            }
+
+            nodes.get(nodeId).deleted = true;
+            deletedCount++;
+        }
+
+        private void updateSubjectName(final String oldSubjectName, final String newSubjectName) {
+            nodes.stream()
+                 .filter(node -> !node.deleted && node.projection.subjectName().equals(oldSubjectName))
+                 .forEach(node -> node.projection = node.projection.withNewSubjectName(newSubjectName));
+        }
+
+        private List<Pair<EmbeddingProjection, double[]>> liveNodes() {
+            return nodes.stream()
+                        .filter(node -> !node.deleted)
+                        .map(node -> Pair.of(node.projection, node.vector))
+                        .toList();
+        }
+
+        private List<Pair<Double, EmbeddingProjection>> search(final double[] query, final int count, final int efSearch) {
+            var result = new ArrayList<Pair<Double, EmbeddingProjection>>();
+            if (entryPoint < 0 || count <= 0) {
+                return result;
+            }
+
+            var current = entryPoint;
+            for (var level = maxLevel; level > 0; level--) {
+                current = searchClosest(query, current, level);
+            }
+
+            var found = searchLevel(query, List.of(current), Math.max(efSearch, count), 0, true);
+            var sorted = new ArrayList<Candidate>(found);
+            sorted.sort(Comparator.comparingDouble(Candidate::distance));
+
+            for (var i = 0; i < Math.min(count, sorted.size()); i++) {
+                var candidate = sorted.get(i);
+                result.add(Pair.of(Math.sqrt(candidate.distance()), nodes.get(candidate.node()).projection));
+            }
+
+            return result;
+        }
+
+        private void insert(final EmbeddingProjection projection, final double[] vector) {
+            var level = randomLevel();
+            var nodeId = nodes.size();
+            var node = new Node(projection, vector, level, maxNeighbours, maxNeighboursLevel0);
+            nodes.add(node);
+            nodeByEmbeddingId.put(projection.embeddingId(), nodeId);
+            residentBytes += node.residentBytes();
+
+            if (entryPoint < 0) {
+                entryPoint = nodeId;
+                maxLevel = level;
+                return;
+            }
+
+            var current = entryPoint;
+            for (var l = maxLevel; l > level; l--) {
+                current = searchClosest(vector, current, l);
+            }
+
+            List<Integer> entryPoints = List.of(current);
+            for (var l = Math.min(level, maxLevel); l >= 0; l--) {
+                var candidates = searchLevel(vector, entryPoints, efConstruction, l, false);
+                var neighbours = selectNeighbours(candidates, l == 0 ? maxNeighboursLevel0 : maxNeighbours);
+
+                for (var neighbour : neighbours) {
+                    node.link(l, neighbour);
+                    connect(neighbour, nodeId, l);
+                }
+
+                entryPoints = neighbours;
+            }
+
+            if (level > maxLevel) {
+                entryPoint = nodeId;
+                maxLevel = level;
+            }
+        }
+
+        private void connect(final int nodeId, final int neighbourId, final int level) {
+            var node = nodes.get(nodeId);
+            var capacity = level == 0 ? maxNeighboursLevel0 : maxNeighbours;
+
+            if (node.counts[level] < capacity) {
+                node.link(level, neighbourId);
+                return;
+            }
+
+            // the node is full, keep only the closest links
+            var candidates = new ArrayList<Candidate>(capacity + 1);
+            for (var i = 0; i < node.counts[level]; i++) {
+                var linked = node.links[level][i];
+                candidates.add(new Candidate(linked, distance(node.vector, nodes.get(linked).vector)));
+            }
+            candidates.add(new Candidate(neighbourId, distance(node.vector, nodes.get(neighbourId).vector)));
+
+            var kept = selectNeighbours(candidates, capacity);
+            node.counts[level] = 0;
+            kept.forEach(linked -> node.link(level, linked));
+        }
+
+        private int searchClosest(final double[] query, final int start, final int level) {
+            var current = start;
+            var currentDistance = distance(query, nodes.get(current).vector);
+            var changed = true;
+
+            while (changed) {
+                changed = false;
+                var node = nodes.get(current);
+                for (var i = 0; i < node.counts[level]; i++) {
+                    var neighbour = node.links[level][i];
+                    var neighbourDistance = distance(query, nodes.get(neighbour).vector);
+                    if (neighbourDistance < currentDistance) {
+                        current = neighbour;
+                        currentDistance = neighbourDistance;
+                        changed = true;
+                    }
+                }
+            }
+
+            return current;
+        }
+
+        private PriorityQueue<Candidate> searchLevel(
+                final double[] query,
+                final List<Integer> entryPoints,
+                final int ef,
+                final int level,
+                final boolean skipDeleted
+        ) {
+            var visited = new BitSet(nodes.size());
+            var candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+            var found = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+
+            for (var entry : entryPoints) {
+                visited.set(entry);
+                var candidate = new Candidate(entry, distance(query, nodes.get(entry).vector));
+                candidates.add(candidate);
+                if (!skipDeleted || !nodes.get(entry).deleted) {
+                    found.add(candidate);
+                }
+            }
+
+            while (!candidates.isEmpty()) {
+                var closest = candidates.poll();
+                if (found.size() >= ef && closest.distance() > found.peek().distance()) {
+                    break;
+                }
+
+                var node = nodes.get(closest.node());
+                for (var i = 0; i < node.counts[level]; i++) {
+                    var neighbour = node.links[level][i];
+                    if (visited.get(neighbour)) {
+                        continue;
+                    }
+                    visited.set(neighbour);
+
+                    var neighbourDistance = distance(query, nodes.get(neighbour).vector);
+                    if (found.size() < ef || neighbourDistance < found.peek().distance()) {
+                        var candidate = new Candidate(neighbour, neighbourDistance);
+                        candidates.add(candidate);
+                        if (!skipDeleted || !nodes.get(neighbour).deleted) {
+                            found.add(candidate);
+                            if (found.size() > ef) {
+                                found.poll();
+                            }
+                        }
+                    }
+                }
+            }
+
+            return found;
+        }
+
+        /**
+         * Neighbour selection heuristic of the paper: a candidate is taken only if it's closer to the base node than to
+         * every already taken one, so links go in different directions and no part of the graph gets cut off.
+         * Slots which are left are filled with the skipped candidates, the closest first.
+         */
+        private List<Integer> selectNeighbours(final Iterable<Candidate> candidates, final int count) {
+            var sorted = new ArrayList<Candidate>();
+            candidates.forEach(sorted::add);
+            sorted.sort(Comparator.comparingDouble(Candidate::distance));
+
+            var selected = new ArrayList<Integer>(count);
+            var skipped = new ArrayList<Integer>();
+            for (var candidate : sorted) {
+                if (selected.size() >= count) {
+                    break;
+                }
+
+                var vector = nodes.get(candidate.node()).vector;
+                var diverse = selected.stream()
+                                      .allMatch(neighbour -> distance(vector, nodes.get(neighbour).vector) >= candidate.distance());
+                (diverse ? selected : skipped).add(candidate.node());
+            }
+
+            for (var i = 0; selected.size() < count && i < skipped.size(); i++) {
+                selected.add(skipped.get(i));
+            }
+
+            return selected;
+        }
+
+        private int randomLevel() {
+            return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        }
+    }
+
+    private static final class Node {
+
+        private final double[] vector;
+        private final int[][] links;
+        private final int[] counts;
+        private EmbeddingProjection projection;
+        private boolean deleted;
+
+        private Node(final EmbeddingProjection projection, final double[] vector, final int level, final int m, final int m0) {
+            this.projection = projection;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.counts = new int[level + 1];
+            for (var l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? m0 : m];
+            }
+        }
+
+        private void link(final int level, final int neighbour) {
+            links[level][counts[level]++] = neighbour;
+        }
+
+        private long residentBytes() {
+            long bytes = NODE_OVERHEAD_BYTES + (long) Double.BYTES * vector.length + (long) Integer.BYTES * counts.length;
+            for (var levelLinks : links) {
+                bytes += (long) Integer.BYTES * levelLinks.length;
+            }
+
+            return bytes;
+        }
+    }
+}
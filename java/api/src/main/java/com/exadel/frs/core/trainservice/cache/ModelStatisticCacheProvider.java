@@ -1,29 +1,46 @@
 package com.exadel.frs.core.trainservice.cache;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.val;
 import org.springframework.stereotype.Component;
 
+/**
+ * Counts requests to models between statistic updates.
+ * <p>
+ * Counters of the models are never removed, only reset, so a request counted concurrently with {@link #drain()}
+ * goes either to the drained counts or to the next ones.
+ */
 @Component
 public class ModelStatisticCacheProvider {
 
-    private static final Cache<Long, Integer> cache = CacheBuilder.newBuilder().build();
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
 
     public void incrementRequestCount(final long key) {
-        cache.asMap().compute(key, (k, v) -> v == null ? 1 : v + 1);
-    }
+        var counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> new LongAdder());
+        }
 
-    public Map<Long, Integer> getCacheCopyAsMap() {
-        return new HashMap<>(cache.asMap());
+        counter.increment();
     }
 
-    public boolean isEmpty() {
-        return cache.size() == 0;
-    }
+    /**
+     * Resets the counters.
+     *
+     * @return request counts of the models since the previous drain, without models which had no requests
+     */
+    public Map<Long, Long> drain() {
+        val counts = new HashMap<Long, Long>();
+        counters.forEach((key, counter) -> {
+            val count = counter.sumThenReset();
+            if (count > 0) {
+                counts.put(key, count);
+            }
+        });
 
-    public void invalidateCache() {
-        cache.invalidateAll();
+        return counts;
     }
 }
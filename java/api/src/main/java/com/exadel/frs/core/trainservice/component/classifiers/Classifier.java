@@ -26,6 +26,8 @@ public interface Classifier extends Serializable {
 
     List<Pair<Double, String>> predict(double[] input, String apiKey, int resultCount);
 
+    List<List<Pair<Double, String>>> predictBatch(double[][] inputs, String apiKey, int resultCount);
+
     Double verify(double[] input, String apiKey, UUID embeddingId);
 
     double[] verify(double[] sourceImageEmbedding, double[][] targetImageEmbedding);
@@ -16,26 +16,29 @@
 
 package com.exadel.frs.core.trainservice.component.classifiers;
 
-import com.exadel.frs.commonservice.sdk.faces.FacesApiClient;
-import com.exadel.frs.commonservice.sdk.faces.exception.FacesServiceException;
-import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesStatusResponse;
 import com.exadel.frs.core.trainservice.cache.EmbeddingCacheProvider;
-import com.google.common.primitives.Doubles;
+import com.exadel.frs.core.trainservice.cache.EmbeddingSnapshot;
+import com.exadel.frs.core.trainservice.cache.HnswIndex;
+import com.exadel.frs.core.trainservice.util.TopK;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 import org.apache.commons.lang3.tuple.Pair;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.ops.transforms.Transforms;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.IntStream;
-
-import static java.lang.Math.min;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 @Component
 @RequiredArgsConstructor
@@ -43,7 +46,52 @@ public class EuclideanDistanceClassifier implements Classifier {
 
     public static final int PREDICTION_COUNT_INFINITY = -1;
     private final EmbeddingCacheProvider embeddingCacheProvider;
-    private final FacesApiClient facesApiClient;
+    private final SimilarityCoefficientsProvider similarityCoefficientsProvider;
+
+    /**
+     * Size of the candidate list of approximate search, the bigger it is the better recall and the slower search.
+     */
+    @Value("${app.recognition.index.ef-search}")
+    private int indexEfSearch;
+
+    /**
+     * Collections smaller than this are always scanned exactly, even if they have an index attached.
+     */
+    @Value("${app.recognition.index.min-size}")
+    private int indexMinSize;
+
+    /**
+     * Collections of this size and bigger are scanned by row shards in parallel.
+     */
+    @Value("${app.recognition.parallel-scan.min-size}")
+    private int parallelScanMinSize;
+
+    /**
+     * Number of threads (and shards) of the parallel scan, 0 - number of available processors, 1 - no parallel scan.
+     */
+    @Value("${app.recognition.parallel-scan.threads}")
+    private int parallelScanThreads;
+
+    private ForkJoinPool scanPool;
+
+    @PostConstruct
+    private void postConstruct() {
+        val parallelism = parallelScanThreads > 0 ? parallelScanThreads : Runtime.getRuntime().availableProcessors();
+        if (parallelism > 1) {
+            scanPool = new ForkJoinPool(parallelism, pool -> {
+                val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("recognition-scan-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+    }
+
+    @PreDestroy
+    private void preDestroy() {
+        if (scanPool != null) {
+            scanPool.shutdown();
+        }
+    }
 
     @Override
     public List<Pair<Double, String>> predict(final double[] input, final String apiKey, final int resultCount) {
@@ -51,31 +99,177 @@ public class EuclideanDistanceClassifier implements Classifier {
         inputFace = normalizeOne(inputFace);
 
         var embeddingCollection = embeddingCacheProvider.getOrLoad(apiKey);
-        final INDArray embeddings = embeddingCollection.getEmbeddings();
+        var index = embeddingCollection.getIndex();
+        if (index != null && resultCount != PREDICTION_COUNT_INFINITY && index.size() >= indexMinSize) {
+            return predictWithIndex(inputFace.toDoubleVector(), index, resultCount);
+        }
 
+        val snapshot = embeddingCollection.snapshot();
+        if (snapshot.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        if (scanPool != null && snapshot.getSize() >= parallelScanMinSize) {
+            return predictParallel(inputFace, snapshot, resultCount);
+        }
+
+        return rank(snapshot, recognize(inputFace, snapshot.getEmbeddings()), resultCount);
+    }
+
+    /**
+     * Splits rows into a shard per thread of the scan pool, every shard is scored and cut to top-k on its own,
+     * then shard results are merged into the final top-k.
+     */
+    private List<Pair<Double, String>> predictParallel(
+            final INDArray inputFace,
+            final EmbeddingSnapshot snapshot,
+            final int resultCount
+    ) {
+        val size = snapshot.getSize();
+        val count = getPredictionCount(resultCount, size);
+        val shardSize = (size + scanPool.getParallelism() - 1) / scanPool.getParallelism();
+
+        val shards = new ArrayList<ForkJoinTask<ShardResult>>();
+        for (int start = 0; start < size; start += shardSize) {
+            val shardStart = start;
+            val shardEnd = Math.min(start + shardSize, size);
+            shards.add(scanPool.submit(() -> scanShard(inputFace, snapshot, shardStart, shardEnd, count)));
+        }
+
+        // shard results are offered by their rows, so equal probabilities are ordered the same way as by a sequential scan
+        val topK = new TopK(count);
+        for (val shard : shards) {
+            val shardResult = shard.join();
+            for (int i = 0; i < shardResult.rows().length; i++) {
+                topK.offer(shardResult.rows()[i], shardResult.probabilities()[i]);
+            }
+        }
+
+        val probabilities = new double[topK.size()];
+        val rows = topK.sortedIndexes(probabilities);
         var result = new ArrayList<Pair<Double, String>>();
-        if (embeddings != null && embeddings.length() > 0) {
-            val probabilities = recognize(inputFace, embeddings);
-            val sortedIndexes = sortedIndexes(probabilities);
-            val indexMap = embeddingCollection.getIndexMap();
-            int predictionCount = getPredictionCount(resultCount, sortedIndexes);
+        for (int i = 0; i < rows.length; i++) {
+            val embedding = snapshot.getProjection(rows[i]);
+            if (embedding == null) {
+                // removed while ranking
+                continue;
+            }
+
+            result.add(Pair.of(probabilities[i], embedding.subjectName()));
+        }
+
+        return result;
+    }
 
-            for (int i = 0; i < min(predictionCount, sortedIndexes.length); i++) {
-                var prob = probabilities[sortedIndexes[i]];
-                var embedding = indexMap.get(sortedIndexes[i]);
+    private ShardResult scanShard(
+            final INDArray inputFace,
+            final EmbeddingSnapshot snapshot,
+            final int start,
+            final int end,
+            final int count
+    ) {
+        val shard = snapshot.getEmbeddings().get(NDArrayIndex.interval(start, end), NDArrayIndex.all());
+        val probabilities = recognize(inputFace, shard);
+
+        val topK = new TopK(Math.min(count, probabilities.length));
+        for (int i = 0; i < probabilities.length; i++) {
+            // rows of removed embeddings stay in the matrix until compaction
+            if (snapshot.getProjection(start + i) != null) {
+                topK.offer(i, probabilities[i]);
+            }
+        }
+
+        val indexes = topK.sortedIndexes();
+        val rows = new int[indexes.length];
+        val shardProbabilities = new double[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            rows[i] = start + indexes[i];
+            shardProbabilities[i] = probabilities[indexes[i]];
+        }
+
+        return new ShardResult(rows, shardProbabilities);
+    }
+
+    /**
+     * Same as {@link #predict(double[], String, int)} for every input, but distances to all of them are computed
+     * by a single matrix multiplication: |a - b|^2 = |a|^2 + |b|^2 - 2 * a.b, with |b|^2 precomputed in the cache.
+     */
+    @Override
+    public List<List<Pair<Double, String>>> predictBatch(final double[][] inputs, final String apiKey, final int resultCount) {
+        var embeddingCollection = embeddingCacheProvider.getOrLoad(apiKey);
+        var index = embeddingCollection.getIndex();
+        val snapshot = embeddingCollection.snapshot();
+        val approximate = resultCount != PREDICTION_COUNT_INFINITY && index != null && index.size() >= indexMinSize;
+        if (inputs.length < 2 || approximate) {
+            // approximate searches are per query anyway
+            return Arrays.stream(inputs)
+                         .map(input -> predict(input, apiKey, resultCount))
+                         .toList();
+        }
+
+        var results = new ArrayList<List<Pair<Double, String>>>(inputs.length);
+        if (snapshot.isEmpty()) {
+            Arrays.stream(inputs).forEach(input -> results.add(new ArrayList<>()));
+            return results;
+        }
+
+        val queries = normalize(Nd4j.create(inputs)).castTo(snapshot.getEmbeddings().dataType());
+        val probabilities = calculateSimilarities(euclidean_distances(queries, snapshot));
+        for (int i = 0; i < inputs.length; i++) {
+            results.add(rank(snapshot, probabilities.getRow(i).toDoubleVector(), resultCount));
+        }
+
+        return results;
+    }
+
+    private List<Pair<Double, String>> rank(final EmbeddingSnapshot snapshot, final double[] probabilities, final int resultCount) {
+        val topK = new TopK(getPredictionCount(resultCount, probabilities.length));
+        for (int row = 0; row < probabilities.length; row++) {
+            // rows of removed embeddings stay in the matrix until compaction
+            if (snapshot.getProjection(row) != null) {
+                topK.offer(row, probabilities[row]);
+            }
+        }
 
-                result.add(Pair.of(prob, embedding.subjectName()));
+        var result = new ArrayList<Pair<Double, String>>();
+        for (val row : topK.sortedIndexes()) {
+            var embedding = snapshot.getProjection(row);
+            if (embedding == null) {
+                // removed while ranking
+                continue;
             }
+
+            result.add(Pair.of(probabilities[row], embedding.subjectName()));
         }
+
         return result;
     }
 
-    private int getPredictionCount(int resultCount, int[] argSort) {
+    private List<Pair<Double, String>> predictWithIndex(final double[] input, final HnswIndex index, final int resultCount) {
+        val neighbours = index.search(input, resultCount, indexEfSearch);
+        var result = new ArrayList<Pair<Double, String>>();
+        if (neighbours.isEmpty()) {
+            return result;
+        }
+
+        val distances = neighbours.stream()
+                                  .mapToDouble(Pair::getLeft)
+                                  .toArray();
+        val probabilities = calculateSimilarities(Nd4j.create(distances)).toDoubleVector();
+
+        for (int i = 0; i < neighbours.size(); i++) {
+            result.add(Pair.of(probabilities[i], neighbours.get(i).getRight().subjectName()));
+        }
+
+        return result;
+    }
+
+    private int getPredictionCount(final int resultCount, final int candidateCount) {
         if (resultCount == PREDICTION_COUNT_INFINITY) {
-            resultCount = argSort.length;
+            return candidateCount;
         }
 
-        return resultCount;
+        return Math.min(resultCount, candidateCount);
     }
 
     @Override
@@ -133,33 +327,35 @@ public class EuclideanDistanceClassifier implements Classifier {
     }
 
     private INDArray calculateSimilarities(INDArray distance) {
-        FacesStatusResponse status = facesApiClient.getStatus();
-        if (status == null || status.getSimilarityCoefficients() == null || status.getSimilarityCoefficients().isEmpty()) {
-            throw new FacesServiceException("No status information received");
-        }
-
-        List<Double> coefficients = status.getSimilarityCoefficients();
+        val coefficients = similarityCoefficientsProvider.getCoefficients();
         // (tanh ((coef0 - distance) * coef1) + 1) / 2
-        return Transforms.tanh(distance.rsubi(coefficients.get(0)).muli(coefficients.get(1)), false).addi(1).divi(2);
+        return Transforms.tanh(distance.rsubi(coefficients.coef0()).muli(coefficients.coef1()), false).addi(1).divi(2);
     }
 
-    private static INDArray euclidean_distance(final INDArray newFace, INDArray existingFaces) {
-        existingFaces = existingFaces.subi(newFace);
+    private static INDArray euclidean_distance(final INDArray newFace, final INDArray existingFaces) {
+        // existing faces are shared with concurrent requests, so they are never modified in place
+        val query = newFace.castTo(existingFaces.dataType()).reshape(1, newFace.length());
 
-        return existingFaces.norm2(1);
+        return Transforms.allEuclideanDistances(existingFaces, query, 1)
+                         .reshape(existingFaces.rows());
     }
 
     /**
-     * Create and sort array of indexes according highest probabilities.
-     *
-     * @param probabilities array of probability
-     * @return sorted array of indexes (highest probability index first)
+     * @return [queries, rows] matrix of distances
      */
-    private static int[] sortedIndexes(double[] probabilities) {
-        return IntStream.range(0, probabilities.length)
-                .boxed()
-                .sorted((index1, index2) -> -Doubles.compare(probabilities[index1], probabilities[index2]))
-                .mapToInt(index -> index)
-                .toArray();
+    private static INDArray euclidean_distances(final INDArray queries, final EmbeddingSnapshot snapshot) {
+        val queryNorms = queries.mul(queries).sum(1).reshape(queries.rows(), 1);
+        val rowNorms = snapshot.getSquaredNorms().reshape(1, snapshot.getSize());
+        val squaredDistances = queries.mmul(snapshot.getEmbeddings().transpose())
+                                      .muli(-2)
+                                      .addiRowVector(rowNorms)
+                                      .addiColumnVector(queryNorms);
+
+        // rounding errors may give tiny negative values for (almost) equal vectors
+        return Transforms.sqrt(Transforms.max(squaredDistances, 0, false), false);
+    }
+
+    private record ShardResult(int[] rows, double[] probabilities) {
+
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.core.trainservice.component.classifiers;
+
+import com.exadel.frs.commonservice.sdk.faces.exception.FacesServiceException;
+import com.exadel.frs.commonservice.sdk.faces.feign.FacesFeignClient;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesStatusResponse;
+import feign.FeignException;
+import java.util.Objects;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps coefficients of the similarity function of the current calculator:
+ * {@code similarity = (tanh((coef0 - distance) * coef1) + 1) / 2}.
+ * <p>
+ * Coefficients are fetched from the core service on first use and refreshed in background, so recognition never waits
+ * for the core service and keeps working with the last known coefficients while it is unavailable.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SimilarityCoefficientsProvider {
+
+    private final FacesFeignClient feignClient;
+
+    private volatile SimilarityCoefficients coefficients;
+
+    public SimilarityCoefficients getCoefficients() {
+        var current = coefficients;
+        if (current == null) {
+            current = load();
+        }
+
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${app.recognition.similarity-coefficients.refresh-interval}")
+    public void refresh() {
+        if (coefficients == null) {
+            // nothing was requested yet, the first request loads coefficients itself
+            return;
+        }
+
+        try {
+            update(feignClient.getStatus());
+        } catch (FeignException | FacesServiceException e) {
+            log.warn("Couldn't refresh similarity coefficients, the last known ones are kept: {}", e.getMessage());
+        }
+    }
+
+    private synchronized SimilarityCoefficients load() {
+        if (coefficients == null) {
+            try {
+                update(feignClient.getStatus());
+            } catch (FeignException e) {
+                throw new FacesServiceException(e.getMessage());
+            }
+        }
+
+        return coefficients;
+    }
+
+    private synchronized void update(final FacesStatusResponse status) {
+        if (status == null || status.getSimilarityCoefficients() == null || status.getSimilarityCoefficients().size() < 2) {
+            throw new FacesServiceException("No status information received");
+        }
+
+        var updated = new SimilarityCoefficients(
+                status.getCalculatorVersion(),
+                status.getSimilarityCoefficients().get(0),
+                status.getSimilarityCoefficients().get(1)
+        );
+        if (!Objects.equals(updated, coefficients)) {
+            log.info("Similarity coefficients of calculator {}: {}, {}", updated.calculatorVersion(), updated.coef0(), updated.coef1());
+            coefficients = updated;
+        }
+    }
+
+    public record SimilarityCoefficients(String calculatorVersion, double coef0, double coef1) {
+
+    }
+}
@@ -17,13 +17,13 @@
 package com.exadel.frs.core.trainservice.component.migration;
 
 import com.exadel.frs.commonservice.sdk.faces.feign.FacesFeignClient;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResult;
 import com.exadel.frs.core.trainservice.service.EmbeddingService;
 import com.exadel.frs.core.trainservice.util.MultipartFileData;
 import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
@@ -93,7 +93,7 @@ public class MigrationComponent {
 
             return findFacesResponse.getResult().stream()
                     .findFirst()
-                    .map(result -> ArrayUtils.toPrimitive(result.getEmbedding()));
+                    .map(FindFacesResult::getEmbedding);
 
         } catch (FeignException.InternalServerError | FeignException.BadRequest error) {
             log.error("Error during processing embedding with id " + embeddingId, error);
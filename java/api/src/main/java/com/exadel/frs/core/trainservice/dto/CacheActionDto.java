@@ -1,5 +1,6 @@
 package com.exadel.frs.core.trainservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -8,6 +9,7 @@ import lombok.NoArgsConstructor;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CacheActionDto {
 
     @JsonProperty("cacheAction")
@@ -18,4 +20,20 @@ public class CacheActionDto {
 
     @JsonProperty("uuid")
     private String serverUUID;
+
+    /**
+     * Number of the event among events of the sender for the same api key, a gap means some events were missed.
+     */
+    @JsonProperty("sequence")
+    private Long sequence;
+
+    /**
+     * Change of the collection, if absent receivers reload the whole collection.
+     */
+    @JsonProperty("delta")
+    private CacheDeltaDto delta;
+
+    public CacheActionDto(final String cacheAction, final String apiKey, final String serverUUID) {
+        this(cacheAction, apiKey, serverUUID, null, null);
+    }
 }
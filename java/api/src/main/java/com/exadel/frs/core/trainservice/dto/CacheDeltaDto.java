@@ -0,0 +1,110 @@
+package com.exadel.frs.core.trainservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of an embedding collection sent to other nodes, so they don't need to reload the whole collection.
+ * Receivers apply renames first, then removals, then fetch added embeddings from the database.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class CacheDeltaDto {
+
+    @JsonProperty("added")
+    private List<UUID> addedEmbeddingIds = new ArrayList<>();
+
+    @JsonProperty("removed")
+    private List<UUID> removedEmbeddingIds = new ArrayList<>();
+
+    @JsonProperty("removedSubjects")
+    private List<String> removedSubjectNames = new ArrayList<>();
+
+    /**
+     * Old subject name to the new one.
+     */
+    @JsonProperty("renamedSubjects")
+    private Map<String, String> renamedSubjectNames = new LinkedHashMap<>();
+
+    /**
+     * Versions of embeddings in the database made by the change, from the first to the last one, see
+     * {@link com.exadel.frs.commonservice.entity.EmbeddingCollectionVersion}. A single change makes one version,
+     * merged changes make a range.
+     */
+    @JsonProperty("fromVersion")
+    private Long fromVersion;
+
+    @JsonProperty("toVersion")
+    private Long toVersion;
+
+    /**
+     * Stamps the change with the single version of embeddings in the database it made.
+     */
+    public void setVersion(final long version) {
+        fromVersion = version;
+        toVersion = version;
+    }
+
+    public static CacheDeltaDto addedEmbedding(final UUID embeddingId) {
+        var delta = new CacheDeltaDto();
+        delta.getAddedEmbeddingIds().add(embeddingId);
+        return delta;
+    }
+
+    public static CacheDeltaDto removedEmbedding(final UUID embeddingId) {
+        var delta = new CacheDeltaDto();
+        delta.getRemovedEmbeddingIds().add(embeddingId);
+        return delta;
+    }
+
+    public static CacheDeltaDto removedSubject(final String subjectName) {
+        var delta = new CacheDeltaDto();
+        delta.getRemovedSubjectNames().add(subjectName);
+        return delta;
+    }
+
+    public static CacheDeltaDto renamedSubject(final String oldSubjectName, final String newSubjectName) {
+        var delta = new CacheDeltaDto();
+        delta.getRenamedSubjectNames().put(oldSubjectName, newSubjectName);
+        return delta;
+    }
+
+    /**
+     * Appends the next change to this one, so both are sent as one.
+     *
+     * @return {@code false} if the changes can't be merged, because applied in the order of {@link CacheDeltaDto}
+     * they would give another result, e.g. a subject is renamed to the name of a subject removed before
+     */
+    public boolean merge(final CacheDeltaDto next) {
+        if (!next.getRenamedSubjectNames().isEmpty() && (!removedEmbeddingIds.isEmpty() || !removedSubjectNames.isEmpty())) {
+            return false;
+        }
+        if (next.getRenamedSubjectNames().keySet().stream().anyMatch(renamedSubjectNames::containsKey)) {
+            // a map keeps only one rename of a name
+            return false;
+        }
+
+        addedEmbeddingIds.addAll(next.getAddedEmbeddingIds());
+        removedEmbeddingIds.addAll(next.getRemovedEmbeddingIds());
+        removedSubjectNames.addAll(next.getRemovedSubjectNames());
+        renamedSubjectNames.putAll(next.getRenamedSubjectNames());
+        if (toVersion == null) {
+            fromVersion = next.getFromVersion();
+            toVersion = next.getToVersion();
+        } else if (next.getToVersion() != null && next.getFromVersion() <= toVersion + 1) {
+            toVersion = Math.max(toVersion, next.getToVersion());
+        }
+        // otherwise versions of other nodes are in between, the range isn't extended over them,
+        // so receivers still see the collection as outdated if those changes don't come
+
+        return true;
+    }
+}
@@ -46,7 +46,7 @@ public class FaceVerification extends FaceProcessResponse {
     private FacesAge age;
     private FacesGender gender;
     private FacesPose pose;
-    private Double[] embedding;
+    private double[] embedding;
     @JsonProperty(value = "execution_time")
     private ExecutionTimeDto executionTime;
     private FacesMask mask;
@@ -38,7 +38,7 @@ public class VerifyFacesResultDto {
     private FacesAge age;
     private FacesGender gender;
     private FacesPose pose;
-    private Double[] embedding;
+    private double[] embedding;
     private FacesBox box;
     @JsonProperty(value = "execution_time")
     private ExecutionTimeDto executionTime;
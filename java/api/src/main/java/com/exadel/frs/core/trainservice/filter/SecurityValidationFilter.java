@@ -22,9 +22,6 @@ import static com.exadel.frs.commonservice.enums.ModelType.VERIFY;
 import static com.exadel.frs.commonservice.enums.ValidationResult.OK;
 import static com.exadel.frs.core.trainservice.system.global.Constants.API_V1;
 import static com.exadel.frs.core.trainservice.system.global.Constants.X_FRS_API_KEY_HEADER;
-import static java.util.Collections.emptyList;
-import static java.util.Collections.list;
-import static java.util.function.Function.identity;
 import com.exadel.frs.commonservice.enums.ModelType;
 import com.exadel.frs.commonservice.exception.BadFormatModelKeyException;
 import com.exadel.frs.commonservice.exception.IncorrectModelTypeException;
@@ -34,9 +31,7 @@ import com.exadel.frs.core.trainservice.cache.ModelStatisticCacheProvider;
 import com.exadel.frs.core.trainservice.service.ModelService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
-import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -66,6 +61,23 @@ import org.springframework.util.StringUtils;
 public class SecurityValidationFilter implements Filter {
 
     public static final String VERIFICATION = "Verification";
+
+    /**
+     * Paths available without an api key.
+     */
+    private static final String[] PUBLIC_PATHS = {
+            "/swagger", "/webjars", "/v2", API_V1 + "/migrate", API_V1 + "/consistence/status", API_V1 + "/static", API_V1 + "/config"
+    };
+
+    /**
+     * Paths counted in model statistics.
+     */
+    private static final String[] COUNTED_PATHS = {
+            API_V1 + "/recognition/recognize", API_V1 + "/detection/detect", API_V1 + "/verification/verify"
+    };
+
+    private static final int UUID_LENGTH = 36;
+
     private final ModelService modelService;
     private final ResponseExceptionHandler handler;
     private final ObjectMapper objectMapper;
@@ -86,49 +98,34 @@ public class SecurityValidationFilter implements Filter {
         val httpRequest = (HttpServletRequest) servletRequest;
         val httpResponse = (HttpServletResponse) servletResponse;
 
-        String requestURI = httpRequest.getRequestURI();
-        if (!requestURI.matches("^/(swagger|webjars|v2|api/v1/migrate|api/v1/consistence/status|api/v1/static|api/v1/config).*$")) {
-            val headersMap =
-                    list(httpRequest.getHeaderNames()).stream()
-                            .collect(Collectors.<String, String, List<String>>toMap(
-                                    identity(),
-                                    header -> list(httpRequest.getHeaders(header))
-                            ));
-
-            var apiKey = headersMap.getOrDefault(X_FRS_API_KEY_HEADER, emptyList());
-
-            if (!apiKey.isEmpty()) {
-                val key = apiKey.get(0);
-                try {
-                    if (key.length() < 36) {
-                        throw new IllegalArgumentException("UUID length is incorrect");
-                    }
-
-                    UUID.fromString(key);
-                } catch (Exception e) {
-                    val objectResponseEntity = handler.handleDefinedExceptions(new BadFormatModelKeyException());
-                    buildException(httpResponse, objectResponseEntity);
-
-                    return;
-                }
-                val modelType = getModelTypeByUrl(requestURI);
-                val validationResult = modelService.validateModelKey(key, modelType);
-                if (validationResult.getResult() != OK) {
-                    val capitalize = ModelType.VERIFY.equals(modelType) ? VERIFICATION : StringUtils.capitalize(modelType.name().toLowerCase());
-                    val objectResponseEntity = handler.handleDefinedExceptions(new ModelNotFoundException(key, capitalize));
-                    buildException(httpResponse, objectResponseEntity);
-
-                    return;
-                }
-                if (requestURI.matches("^/(api/v1/recognition/recognize|api/v1/detection/detect|api/v1/verification/verify).*$")) {
-                    modelStatisticCacheProvider.incrementRequestCount(validationResult.getModelId());
-                }
-            } else {
+        val requestURI = httpRequest.getRequestURI();
+        if (!startsWithAny(requestURI, PUBLIC_PATHS)) {
+            val key = httpRequest.getHeader(X_FRS_API_KEY_HEADER);
+            if (key == null) {
                 val objectResponseEntity = handler.handleMissingRequestHeader(X_FRS_API_KEY_HEADER);
                 buildException(httpResponse, objectResponseEntity);
 
                 return;
             }
+            if (!isUuid(key)) {
+                val objectResponseEntity = handler.handleDefinedExceptions(new BadFormatModelKeyException());
+                buildException(httpResponse, objectResponseEntity);
+
+                return;
+            }
+
+            val modelType = getModelTypeByUrl(requestURI);
+            val validationResult = modelService.validateModelKey(key, modelType);
+            if (validationResult.getResult() != OK) {
+                val capitalize = ModelType.VERIFY.equals(modelType) ? VERIFICATION : StringUtils.capitalize(modelType.name().toLowerCase());
+                val objectResponseEntity = handler.handleDefinedExceptions(new ModelNotFoundException(key, capitalize));
+                buildException(httpResponse, objectResponseEntity);
+
+                return;
+            }
+            if (startsWithAny(requestURI, COUNTED_PATHS)) {
+                modelStatisticCacheProvider.incrementRequestCount(validationResult.getModelId());
+            }
         }
 
         filterChain.doFilter(servletRequest, servletResponse);
@@ -148,6 +145,39 @@ public class SecurityValidationFilter implements Filter {
         //don't need to flush or close the writer
     }
 
+    private static boolean startsWithAny(final String path, final String[] prefixes) {
+        for (val prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Same check as {@link UUID#fromString(String)} of a key in the canonical form, without an exception for every
+     * malformed key.
+     */
+    private static boolean isUuid(final String key) {
+        if (key.length() != UUID_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            val c = key.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private ModelType getModelTypeByUrl(String url) {
         if (url.contains(API_V1 + "/detection")) {
             return DETECTION;
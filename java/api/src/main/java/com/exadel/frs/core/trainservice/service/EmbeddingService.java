@@ -1,12 +1,16 @@
 package com.exadel.frs.core.trainservice.service;
 
 import com.exadel.frs.commonservice.entity.Embedding;
+import com.exadel.frs.commonservice.entity.EmbeddingCollectionVersion;
 import com.exadel.frs.commonservice.projection.EmbeddingProjection;
 import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
 import com.exadel.frs.commonservice.entity.Img;
+import com.exadel.frs.commonservice.repository.EmbeddingCollectionVersionRepository;
 import com.exadel.frs.commonservice.repository.EmbeddingRepository;
 import com.exadel.frs.commonservice.repository.ImgRepository;
 import com.exadel.frs.core.trainservice.system.global.Constants;
+import com.google.common.collect.Iterables;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
@@ -15,8 +19,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 
@@ -24,7 +32,10 @@ import java.util.function.Function;
 @RequiredArgsConstructor
 public class EmbeddingService {
 
+    private static final int IDS_PER_QUERY = 1000;
+
     private final EmbeddingRepository embeddingRepository;
+    private final EmbeddingCollectionVersionRepository collectionVersionRepository;
     private final ImgRepository imgRepository;
 
     @Transactional
@@ -39,6 +50,44 @@ public class EmbeddingService {
         }
     }
 
+    /**
+     * Same as {@link #doWithEnhancedEmbeddingProjectionStream}, but only for the given embeddings.
+     */
+    public List<EnhancedEmbeddingProjection> getEnhancedEmbeddingProjections(String apiKey, Collection<UUID> embeddingIds) {
+        val result = new ArrayList<EnhancedEmbeddingProjection>(embeddingIds.size());
+        // keeps the number of bind parameters of a query reasonable
+        for (val ids : Iterables.partition(embeddingIds, IDS_PER_QUERY)) {
+            result.addAll(embeddingRepository.findBySubjectApiKeyAndIdIn(apiKey, ids));
+        }
+
+        return result;
+    }
+
+    /**
+     * @return version of embeddings of the model, see {@link EmbeddingCollectionVersion}
+     */
+    public long getCollectionVersion(String apiKey) {
+        return collectionVersionRepository.findById(apiKey)
+                                          .map(EmbeddingCollectionVersion::getVersion)
+                                          .orElse(0L);
+    }
+
+    /**
+     * @return versions of embeddings of the models by api key, models which embeddings were never changed are absent
+     */
+    public Map<String, Long> getCollectionVersions(Collection<String> apiKeys) {
+        return collectionVersionRepository.findAllById(apiKeys)
+                                          .stream()
+                                          .collect(Collectors.toMap(
+                                                  EmbeddingCollectionVersion::getApiKey,
+                                                  EmbeddingCollectionVersion::getVersion
+                                          ));
+    }
+
+    public Set<String> getCalculators(String apiKey) {
+        return Set.copyOf(embeddingRepository.getUniqueCalculators(apiKey));
+    }
+
     public List<Embedding> getWithImgAndCalculatorNotEq(String calculator) {
         return embeddingRepository.getWithImgAndCalculatorNotEq(calculator);
     }
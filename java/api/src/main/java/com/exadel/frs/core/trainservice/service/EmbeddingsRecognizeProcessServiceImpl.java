@@ -4,6 +4,7 @@ import static com.exadel.frs.core.trainservice.system.global.Constants.PREDICTIO
 import static java.math.RoundingMode.HALF_UP;
 import com.exadel.frs.commonservice.exception.IncorrectPredictionCountException;
 import com.exadel.frs.commonservice.sdk.faces.FacesApiClient;
+import com.exadel.frs.core.trainservice.cache.FindFacesResponseCache;
 import com.exadel.frs.core.trainservice.component.FaceClassifierPredictor;
 import com.exadel.frs.core.trainservice.dto.EmbeddingRecognitionProcessResult;
 import com.exadel.frs.core.trainservice.dto.EmbeddingSimilarityResult;
@@ -12,8 +13,8 @@ import com.exadel.frs.core.trainservice.dto.ProcessEmbeddingsParams;
 import com.exadel.frs.core.trainservice.mapper.FacesMapper;
 import com.exadel.frs.core.trainservice.validation.ImageExtensionValidator;
 import java.math.BigDecimal;
-import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.stereotype.Service;
 
@@ -25,8 +26,9 @@ public class EmbeddingsRecognizeProcessServiceImpl extends FaceRecognizeProcessS
     public EmbeddingsRecognizeProcessServiceImpl(final FaceClassifierPredictor classifierPredictor,
                                                  final FacesApiClient facesApiClient,
                                                  final ImageExtensionValidator imageExtensionValidator,
-                                                 final FacesMapper facesMapper) {
-        super(classifierPredictor, facesApiClient, imageExtensionValidator, facesMapper);
+                                                 final FacesMapper facesMapper,
+                                                 final FindFacesResponseCache findFacesResponseCache) {
+        super(classifierPredictor, facesApiClient, imageExtensionValidator, facesMapper, findFacesResponseCache);
         this.classifierPredictor = classifierPredictor;
     }
 
@@ -40,16 +42,16 @@ public class EmbeddingsRecognizeProcessServiceImpl extends FaceRecognizeProcessS
         String apiKey = processEmbeddingsParams.getApiKey();
         double[][] embeddings = processEmbeddingsParams.getEmbeddings();
 
+        List<List<Pair<Double, String>>> predictions = classifierPredictor.predictBatch(apiKey, embeddings, predictionCount);
         List<EmbeddingRecognitionProcessResult> results =
-                Arrays.stream(embeddings)
-                      .map(embedding -> processEmbedding(predictionCount, apiKey, embedding))
-                      .toList();
+                IntStream.range(0, embeddings.length)
+                         .mapToObj(i -> processEmbedding(embeddings[i], predictions.get(i)))
+                         .toList();
 
         return new EmbeddingsRecognitionProcessResponse(results);
     }
 
-    private EmbeddingRecognitionProcessResult processEmbedding(final Integer predictionCount, final String apiKey, final double[] embedding) {
-        List<Pair<Double, String>> predictions = classifierPredictor.predict(apiKey, embedding, predictionCount);
+    private EmbeddingRecognitionProcessResult processEmbedding(final double[] embedding, final List<Pair<Double, String>> predictions) {
         List<EmbeddingSimilarityResult> similarities = predictions.stream()
                                                                   .map(this::processPrediction)
                                                                   .toList();
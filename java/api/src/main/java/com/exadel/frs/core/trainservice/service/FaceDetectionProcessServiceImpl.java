@@ -2,6 +2,7 @@ package com.exadel.frs.core.trainservice.service;
 
 import com.exadel.frs.commonservice.sdk.faces.FacesApiClient;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
+import com.exadel.frs.core.trainservice.cache.FindFacesResponseCache;
 import com.exadel.frs.core.trainservice.dto.FacesDetectionResponseDto;
 import com.exadel.frs.core.trainservice.dto.ProcessImageParams;
 import com.exadel.frs.core.trainservice.mapper.FacesMapper;
@@ -17,6 +18,7 @@ public class FaceDetectionProcessServiceImpl implements FaceProcessService {
     private final FacesApiClient facesApiClient;
     private final ImageExtensionValidator imageExtensionValidator;
     private final FacesMapper facesMapper;
+    private final FindFacesResponseCache findFacesResponseCache;
 
     @Override
     public FacesDetectionResponseDto processImage(ProcessImageParams processImageParams) {
@@ -28,10 +30,18 @@ public class FaceDetectionProcessServiceImpl implements FaceProcessService {
         if (processImageParams.getFile() != null) {
             MultipartFile file = (MultipartFile) processImageParams.getFile();
             imageExtensionValidator.validate(file);
-            findFacesResponse = facesApiClient.findFaces(file, limit, detProbThreshold, facePlugins, true);
+            findFacesResponse = findFacesResponseCache.get(
+                    processImageParams,
+                    false,
+                    () -> facesApiClient.findFaces(file, limit, detProbThreshold, facePlugins, true)
+            );
         } else {
             imageExtensionValidator.validateBase64(processImageParams.getImageBase64());
-            findFacesResponse = facesApiClient.findFacesBase64(processImageParams.getImageBase64(), limit, detProbThreshold, facePlugins,true);
+            findFacesResponse = findFacesResponseCache.get(
+                    processImageParams,
+                    false,
+                    () -> facesApiClient.findFacesBase64(processImageParams.getImageBase64(), limit, detProbThreshold, facePlugins, true)
+            );
         }
 
         FacesDetectionResponseDto facesDetectionResponseDto = facesMapper.toFacesDetectionResponseDto(findFacesResponse);
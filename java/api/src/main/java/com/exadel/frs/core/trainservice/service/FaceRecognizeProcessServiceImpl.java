@@ -2,6 +2,7 @@ package com.exadel.frs.core.trainservice.service;
 
 import com.exadel.frs.commonservice.exception.IncorrectPredictionCountException;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
+import com.exadel.frs.core.trainservice.cache.FindFacesResponseCache;
 import com.exadel.frs.core.trainservice.component.FaceClassifierPredictor;
 import com.exadel.frs.core.trainservice.dto.FacePredictionResultDto;
 import com.exadel.frs.core.trainservice.dto.FaceSimilarityDto;
@@ -13,11 +14,12 @@ import com.exadel.frs.core.trainservice.validation.ImageExtensionValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.stream.Stream;
+import java.util.List;
 
 import static com.exadel.frs.core.trainservice.system.global.Constants.PREDICTION_COUNT;
 import static java.math.RoundingMode.HALF_UP;
@@ -30,6 +32,7 @@ public class FaceRecognizeProcessServiceImpl implements FaceProcessService {
     private final FacesApiClient facesApiClient;
     private final ImageExtensionValidator imageExtensionValidator;
     private final FacesMapper facesMapper;
+    private final FindFacesResponseCache findFacesResponseCache;
 
     @Override
     public FacesRecognitionResponseDto processImage(ProcessImageParams processImageParams) {
@@ -44,22 +47,22 @@ public class FaceRecognizeProcessServiceImpl implements FaceProcessService {
         if (processImageParams.getFile() != null) {
             MultipartFile file = (MultipartFile) processImageParams.getFile();
             imageExtensionValidator.validate(file);
-            findFacesResponse = facesApiClient.findFacesWithCalculator(
+            findFacesResponse = findFacesResponseCache.get(processImageParams, true, () -> facesApiClient.findFacesWithCalculator(
                     file,
                     processImageParams.getLimit(),
                     processImageParams.getDetProbThreshold(),
                     processImageParams.getFacePlugins(),
                     processImageParams.getDetectFaces()
-            );
+            ));
         } else {
             imageExtensionValidator.validateBase64(processImageParams.getImageBase64());
-            findFacesResponse = facesApiClient.findFacesBase64WithCalculator(
+            findFacesResponse = findFacesResponseCache.get(processImageParams, true, () -> facesApiClient.findFacesBase64WithCalculator(
                     processImageParams.getImageBase64(),
                     processImageParams.getLimit(),
                     processImageParams.getDetProbThreshold(),
                     processImageParams.getFacePlugins(),
                     processImageParams.getDetectFaces()
-            );
+            ));
         }
 
         val facesRecognitionDto = facesMapper.toFacesRecognitionResponseDto(findFacesResponse);
@@ -68,8 +71,15 @@ public class FaceRecognizeProcessServiceImpl implements FaceProcessService {
         }
 
         String apiKey = processImageParams.getApiKey();
-        for (val findResult : facesRecognitionDto.getResult()) {
-            final ArrayList<FaceSimilarityDto> faces = processFaceResult(predictionCount, apiKey, findResult);
+        val findResults = facesRecognitionDto.getResult();
+        // all faces of the image are recognized in one pass over the model embeddings
+        double[][] inputs = findResults.stream()
+                                       .map(FacePredictionResultDto::getEmbedding)
+                                       .toArray(double[][]::new);
+        val predictions = classifierPredictor.predictBatch(apiKey, inputs, predictionCount);
+        for (int i = 0; i < findResults.size(); i++) {
+            val findResult = findResults.get(i);
+            final ArrayList<FaceSimilarityDto> faces = processFaceResult(predictions.get(i), findResult);
 
             findResult.setSubjects(faces);
         }
@@ -77,9 +87,7 @@ public class FaceRecognizeProcessServiceImpl implements FaceProcessService {
         return facesRecognitionDto.prepareResponse(processImageParams);
     }
 
-    private ArrayList<FaceSimilarityDto> processFaceResult(Integer predictionCount, String apiKey, FacePredictionResultDto findResult) {
-        double[] input = Stream.of(findResult.getEmbedding()).mapToDouble(d -> d).toArray();
-        val predictions = classifierPredictor.predict(apiKey, input, predictionCount);
+    private ArrayList<FaceSimilarityDto> processFaceResult(List<Pair<Double, String>> predictions, FacePredictionResultDto findResult) {
         val faces = new ArrayList<FaceSimilarityDto>();
         for (val prediction : predictions) {
             var pred = BigDecimal.valueOf(prediction.getLeft());
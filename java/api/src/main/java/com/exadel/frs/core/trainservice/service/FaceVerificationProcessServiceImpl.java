@@ -20,10 +20,10 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.exadel.frs.core.trainservice.system.global.Constants.SOURCE_IMAGE;
 import static com.exadel.frs.core.trainservice.system.global.Constants.TARGET_IMAGE;
@@ -86,8 +86,8 @@ public class FaceVerificationProcessServiceImpl implements FaceProcessService {
         }
 
         @Override
-        FindFacesResponse findFace(MultipartFile photo, ProcessImageParams processImageParams) {
-            return client.findFacesWithCalculator(
+        CompletableFuture<FindFacesResponse> findFace(MultipartFile photo, ProcessImageParams processImageParams) {
+            return client.findFacesWithCalculatorAsync(
                     photo,
                     processImageParams.getLimit(),
                     processImageParams.getDetProbThreshold(),
@@ -109,8 +109,8 @@ public class FaceVerificationProcessServiceImpl implements FaceProcessService {
         }
 
         @Override
-        FindFacesResponse findFace(String photo, ProcessImageParams processImageParams) {
-            return client.findFacesBase64WithCalculator(
+        CompletableFuture<FindFacesResponse> findFace(String photo, ProcessImageParams processImageParams) {
+            return client.findFacesBase64WithCalculatorAsync(
                     photo,
                     processImageParams.getLimit(),
                     processImageParams.getDetProbThreshold(),
@@ -126,26 +126,48 @@ public class FaceVerificationProcessServiceImpl implements FaceProcessService {
         private final T source;
         private final T target;
 
+        /**
+         * Both images are sent to the core service at once. The target image isn't needed when the source one doesn't
+         * have exactly one face, its request is cancelled then.
+         */
         public List<FindFacesResponse> findFaces(ProcessImageParams processImageParams) {
             validate(source);
             validate(target);
 
-            FindFacesResponse sourceImageResponse = findFace(source, processImageParams);
+            CompletableFuture<FindFacesResponse> sourceFuture = findFace(source, processImageParams);
+            CompletableFuture<FindFacesResponse> targetFuture = findFace(target, processImageParams);
+            try {
+                FindFacesResponse sourceImageResponse = join(sourceFuture);
 
-            if (sourceImageResponse == null || CollectionUtils.isEmpty(sourceImageResponse.getResult())) {
-                throw new NoFacesFoundException();
-            } else if (sourceImageResponse.getResult().size() > 1) {
-                throw new TooManyFacesException();
-            }
+                if (sourceImageResponse == null || CollectionUtils.isEmpty(sourceImageResponse.getResult())) {
+                    throw new NoFacesFoundException();
+                } else if (sourceImageResponse.getResult().size() > 1) {
+                    throw new TooManyFacesException();
+                }
 
-            FindFacesResponse targetImageResponse = findFace(target, processImageParams);
+                FindFacesResponse targetImageResponse = join(targetFuture);
 
-            return List.of(sourceImageResponse, targetImageResponse);
+                return List.of(sourceImageResponse, targetImageResponse);
+            } catch (RuntimeException e) {
+                targetFuture.cancel(true);
+                throw e;
+            }
+        }
+
+        private static FindFacesResponse join(CompletableFuture<FindFacesResponse> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
         }
 
         abstract void validate(T photo);
 
-        abstract FindFacesResponse findFace(T photo, ProcessImageParams processImageParams);
+        abstract CompletableFuture<FindFacesResponse> findFace(T photo, ProcessImageParams processImageParams);
     }
 
     private VerifyFacesResponse getResult(FindFacesResponse sourceImageResult, FindFacesResponse targetImageResult) {
@@ -156,11 +178,9 @@ public class FaceVerificationProcessServiceImpl implements FaceProcessService {
         targetFacesResults.forEach(result -> roundProbability(result.getBox()));
 
         // Get embeddings
-        Function<Double[], double[]> toPrimitiveDouble = source -> Arrays.stream(source).mapToDouble(d -> d).toArray();
-        double[] sourceImageEmbedding = toPrimitiveDouble.apply(sourceFacesResult.getEmbedding());
+        double[] sourceImageEmbedding = sourceFacesResult.getEmbedding();
         double[][] targetImageEmbeddings = targetFacesResults.stream()
                 .map(FindFacesResult::getEmbedding)
-                .map(toPrimitiveDouble)
                 .toArray(double[][]::new);
 
         double[] similarities = classifierPredictor.verify(sourceImageEmbedding, targetImageEmbeddings);
@@ -20,20 +20,82 @@ import static com.exadel.frs.commonservice.enums.ValidationResult.OK;
 import com.exadel.frs.commonservice.enums.ModelType;
 import com.exadel.frs.commonservice.repository.ModelRepository;
 import com.exadel.frs.core.trainservice.dto.ModelValidationResult;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Validates api keys of requests. Results are cached, so most requests don't query the database: valid keys for
+ * {@code app.model-key-cache.ttl} ms and unknown ones for {@code app.model-key-cache.negative-ttl} ms. Unknown keys
+ * are cached separately, guessed keys don't push valid ones out of the cache.
+ * <p>
+ * The database notifies every node when a model is deleted or its key is changed, see {@link #invalidateModelKey(String)}.
+ */
 @Service
 @RequiredArgsConstructor
-@Transactional("tmPg")
 public class ModelService {
 
     private final ModelRepository modelRepository;
 
+    @Value("${app.model-key-cache.max-size}")
+    private long cacheMaxSize;
+
+    @Value("${app.model-key-cache.ttl}")
+    private long cacheTtlMs;
+
+    @Value("${app.model-key-cache.negative-ttl}")
+    private long cacheNegativeTtlMs;
+
+    private Cache<ModelKey, ModelValidationResult> validKeys;
+    private Cache<ModelKey, ModelValidationResult> unknownKeys;
+
+    @PostConstruct
+    private void postConstruct() {
+        validKeys = CacheBuilder.newBuilder()
+                                .maximumSize(cacheMaxSize)
+                                .expireAfterWrite(cacheTtlMs, TimeUnit.MILLISECONDS)
+                                .build();
+        unknownKeys = CacheBuilder.newBuilder()
+                                  .maximumSize(cacheMaxSize)
+                                  .expireAfterWrite(cacheNegativeTtlMs, TimeUnit.MILLISECONDS)
+                                  .build();
+    }
+
     public ModelValidationResult validateModelKey(final String modelKey, ModelType type) {
-        return modelRepository.findByApiKeyAndType(modelKey, type)
-                              .map(model -> new ModelValidationResult(model.getId(), OK))
-                              .orElseGet(ModelValidationResult::new);
+        val key = new ModelKey(modelKey, type);
+        var result = validKeys.getIfPresent(key);
+        if (result == null) {
+            result = unknownKeys.getIfPresent(key);
+        }
+        if (result != null) {
+            return result;
+        }
+
+        result = modelRepository.findByApiKeyAndType(modelKey, type)
+                                .map(model -> new ModelValidationResult(model.getId(), OK))
+                                .orElseGet(ModelValidationResult::new);
+        (result.getResult() == OK ? validKeys : unknownKeys).put(key, result);
+
+        return result;
+    }
+
+    /**
+     * Drops cached results of the key, the next request validates it against the database.
+     */
+    public void invalidateModelKey(final String modelKey) {
+        for (val type : ModelType.values()) {
+            val key = new ModelKey(modelKey, type);
+            validKeys.invalidate(key);
+            unknownKeys.invalidate(key);
+        }
+    }
+
+    private record ModelKey(String apiKey, ModelType type) {
+
     }
 }
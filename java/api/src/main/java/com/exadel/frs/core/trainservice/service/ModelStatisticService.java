@@ -47,7 +47,8 @@ public class ModelStatisticService {
     @Transactional
     @Scheduled(cron = CRON_EXPRESSION_PLACEHOLDER, zone = "UTC")
     public void updateAndRecordStatistics() {
-        if (statisticCacheProvider.isEmpty()) {
+        val cache = statisticCacheProvider.drain();
+        if (cache.isEmpty()) {
             log.info("No statistic to update or record.");
             return;
         }
@@ -56,13 +57,9 @@ public class ModelStatisticService {
 
         if (lastExecution == null) {
             log.error("Couldn't update or record statistics due to can't calculate the execution time for your cron expression.");
-            statisticCacheProvider.invalidateCache();
             return;
         }
 
-        val cache = statisticCacheProvider.getCacheCopyAsMap();
-        statisticCacheProvider.invalidateCache();
-
         // Used to obtain a table lock. Only one application instance per time can execute the method.
         lockRepository.lockByName(MODEL_STATISTIC_LOCK);
 
@@ -80,7 +77,7 @@ public class ModelStatisticService {
         log.info("The statistics have been updated({}) and recorded({})", updateCount, recordCount);
     }
 
-    private List<ModelStatistic> updateStatistics(final Map<Long, Integer> cache, final LocalDateTime createDate) {
+    private List<ModelStatistic> updateStatistics(final Map<Long, Long> cache, final LocalDateTime createDate) {
         val modelIds = cache.keySet();
         val statisticsToUpdate = statisticRepository.findAllByModelIdInAndCreatedDate(modelIds, createDate);
         val updatedStatistics = new ArrayList<ModelStatistic>();
@@ -88,7 +85,7 @@ public class ModelStatisticService {
         statisticsToUpdate.forEach(statistic -> {
             val cacheKey = statistic.getModel().getId();
             val cacheRequestCount = cache.get(cacheKey);
-            val totalRequestCount = statistic.getRequestCount() + cacheRequestCount;
+            val totalRequestCount = statistic.getRequestCount() + Math.toIntExact(cacheRequestCount);
 
             statistic.setRequestCount(totalRequestCount);
 
@@ -99,7 +96,7 @@ public class ModelStatisticService {
         return updatedStatistics;
     }
 
-    private List<ModelStatistic> recordStatistics(final Map<Long, Integer> cache, final LocalDateTime createDate) {
+    private List<ModelStatistic> recordStatistics(final Map<Long, Long> cache, final LocalDateTime createDate) {
         val modelIds = cache.keySet();
         val models = modelRepository.findAllByIdIn(modelIds);
         val recordedStatistics = new ArrayList<ModelStatistic>();
@@ -108,7 +105,7 @@ public class ModelStatisticService {
             val cacheKey = model.getId();
             val cacheRequestCount = cache.get(cacheKey);
             val statistic = ModelStatistic.builder()
-                                          .requestCount(cacheRequestCount)
+                                          .requestCount(Math.toIntExact(cacheRequestCount))
                                           .createdDate(createDate)
                                           .model(model)
                                           .build();
@@ -4,6 +4,7 @@ import com.exadel.frs.core.trainservice.cache.EmbeddingCacheProvider;
 import com.exadel.frs.core.trainservice.dto.CacheActionDto;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.impossibl.postgres.api.jdbc.PGConnection;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
 import com.impossibl.postgres.jdbc.PGDataSource;
@@ -15,8 +16,13 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static com.exadel.frs.core.trainservice.system.global.Constants.SERVER_UUID;
 
@@ -25,6 +31,8 @@ import static com.exadel.frs.core.trainservice.system.global.Constants.SERVER_UU
 @RequiredArgsConstructor
 public class NotificationReceiverService {
 
+    private static final long RECONNECT_DELAY_MS = 5000;
+
     @Qualifier("dsPgNot")
     private final PGDataSource pgNotificationDatasource;
 
@@ -33,10 +41,16 @@ public class NotificationReceiverService {
 
     private final EmbeddingCacheProvider embeddingCacheProvider;
 
+    private final ModelService modelService;
+
     private final ObjectMapper objectMapper;
 
     private static PGNotificationListener listener;
 
+    private final ScheduledExecutorService reconnectExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("notification-reconnect-%d").setDaemon(true).build()
+    );
+
     @PostConstruct
     public void setUpNotification() {
 
@@ -52,9 +66,21 @@ public class NotificationReceiverService {
 
             @Override
             public void closed() {
-                log.info("face_collection_update_msg closed");
+                // notifications sent meanwhile are lost, cached collections are brought up to date by version checks
+                log.warn("face_collection_update_msg closed, reconnecting");
+                scheduleReconnect();
             }
         };
+
+        connect();
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        reconnectExecutor.shutdownNow();
+    }
+
+    private void connect() {
         try {
             connection = pgNotificationDatasource.getConnection().unwrap(PGConnection.class);
 
@@ -62,11 +88,20 @@ public class NotificationReceiverService {
             statement.executeUpdate("LISTEN face_collection_update_msg");
 
             statement.close();
+
+            connection.addNotificationListener(listener);
         } catch (SQLException ex) {
-            ex.printStackTrace();
+            log.error("Couldn't listen to face_collection_update_msg, retrying", ex);
+            scheduleReconnect();
         }
+    }
 
-        connection.addNotificationListener(listener);
+    private void scheduleReconnect() {
+        try {
+            reconnectExecutor.schedule(this::connect, RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the application is shutting down
+        }
     }
 
     private void synchronizeCacheWithNotification(String payload) {
@@ -80,10 +115,26 @@ public class NotificationReceiverService {
                     && !StringUtils.isBlank(cacheActionDto.getCacheAction())
             ) {
 
+                var inSequence = embeddingCacheProvider.receiveSequence(
+                        cacheActionDto.getServerUUID(),
+                        cacheActionDto.getApiKey(),
+                        cacheActionDto.getSequence()
+                );
+
                 if (cacheActionDto.getCacheAction().equals("UPDATE")) {
-                    embeddingCacheProvider.receivePutOnCache(cacheActionDto.getApiKey());
+                    if (cacheActionDto.getDelta() == null) {
+                        embeddingCacheProvider.receivePutOnCache(cacheActionDto.getApiKey());
+                    } else if (inSequence) {
+                        embeddingCacheProvider.receiveDeltaOnCache(cacheActionDto.getApiKey(), cacheActionDto.getDelta());
+                    } else {
+                        embeddingCacheProvider.receiveMissedChangesOnCache(cacheActionDto.getApiKey());
+                    }
                 } else if (cacheActionDto.getCacheAction().equals("DELETE")) {
                     embeddingCacheProvider.receiveInvalidateCache(cacheActionDto.getApiKey());
+                } else if (cacheActionDto.getCacheAction().equals("INVALIDATE_MODEL")) {
+                    // sent by the database when a model is deleted or its api key is changed
+                    modelService.invalidateModelKey(cacheActionDto.getApiKey());
+                    embeddingCacheProvider.receiveInvalidateCache(cacheActionDto.getApiKey());
                 }
             }
         } catch (JsonProcessingException e) {
@@ -1,53 +1,202 @@
 package com.exadel.frs.core.trainservice.service;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import com.exadel.frs.core.trainservice.dto.CacheActionDto;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.impossibl.postgres.jdbc.PGDataSource;
-import javax.annotation.PostConstruct;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import lombok.val;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.sql.SQLException;
-import java.sql.Statement;
-
-
+/**
+ * Sends cache changes to other nodes with {@code NOTIFY face_collection_update_msg}.
+ * <p>
+ * Changes are sent in background: changes of the same api key made within a short window are merged into one
+ * notification and all the notifications of the window are sent by one statement. The connection is opened again
+ * after failures, changes which couldn't be sent are retried.
+ */
 @Service("notificationSenderService")
 @Slf4j
 @RequiredArgsConstructor
 public class NotificationSenderService {
+
+    private static final String CHANNEL = "face_collection_update_msg";
+    private static final String NOTIFY_QUERY = "SELECT pg_notify(?, payload) FROM unnest(?::text[]) AS payload";
+    // payloads of NOTIFY must be shorter than 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final long RETRY_DELAY_MS = 1000;
+
     @Qualifier("dsPgNot")
     private final PGDataSource pgNotificationDatasource;
-    private PGConnection connection;
 
-    @PostConstruct
-    public void setUp() {
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.cache-notifications.coalesce-window}")
+    private long coalesceWindowMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cache-notification-%d").setDaemon(true).build()
+    );
+
+    /**
+     * Changes waiting to be sent, by api key. Guarded by {@code this}.
+     */
+    private final Map<String, CacheActionDto> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    /**
+     * Sequence of the last sent notification for an api key, see {@link CacheActionDto#getSequence()}.
+     * Accessed by the executor thread only.
+     */
+    private final Map<String, Long> sequences = new HashMap<>();
+    private Connection connection;
+
+    public void notifyCacheChange(CacheActionDto cacheActionDto) {
+        synchronized (this) {
+            pending.merge(cacheActionDto.getApiKey(), cacheActionDto, NotificationSenderService::coalesce);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+
         try {
-            this.connection = (PGConnection) pgNotificationDatasource.getConnection();
-        } catch (SQLException e) {
-            log.error("Error during connection to Postgres", e);
+            executor.schedule(this::flush, coalesceWindowMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Cache notification isn't sent, the application is shutting down");
         }
     }
 
-    public void notifyCacheChange(CacheActionDto cacheActionDto) {
+    @PreDestroy
+    public void preDestroy() {
+        executor.shutdown();
         try {
-            Statement statement = this.connection.createStatement();
-
-            try {
-                ObjectMapper objectMapper = new ObjectMapper();
-                String actionString = String.format("NOTIFY face_collection_update_msg, '%s'",
-                        objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(cacheActionDto));
-                statement.execute(actionString);
-            } catch (JsonProcessingException e) {
-                log.error(e.getMessage());
+            if (executor.awaitTermination(RETRY_DELAY_MS, TimeUnit.MILLISECONDS)) {
+                // whatever is left is sent by this thread
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeConnection();
+    }
+
+    /**
+     * @return one change with the same result for receivers as {@code pending} and then {@code next}
+     */
+    static CacheActionDto coalesce(final CacheActionDto pending, final CacheActionDto next) {
+        if ("DELETE".equals(next.getCacheAction()) || "DELETE".equals(pending.getCacheAction()) && next.getDelta() != null) {
+            // receivers ignore changes of collections they don't have
+            return new CacheActionDto("DELETE", next.getApiKey(), next.getServerUUID());
+        }
+        if (pending.getDelta() == null || next.getDelta() == null || !pending.getDelta().merge(next.getDelta())) {
+            // receivers reload the whole collection
+            return new CacheActionDto(next.getCacheAction(), next.getApiKey(), next.getServerUUID());
+        }
+
+        return pending;
+    }
+
+    private void flush() {
+        final List<CacheActionDto> actions;
+        synchronized (this) {
+            actions = new ArrayList<>(pending.values());
+            pending.clear();
+            flushScheduled = false;
+        }
+        if (actions.isEmpty()) {
+            return;
+        }
+
+        val payloads = new ArrayList<String>(actions.size());
+        for (val action : actions) {
+            action.setSequence(sequences.getOrDefault(action.getApiKey(), 0L) + 1);
+            val payload = serialize(action);
+            if (payload != null) {
+                payloads.add(payload);
             }
+        }
 
-            statement.close();
+        try {
+            send(payloads);
+            actions.forEach(action -> sequences.put(action.getApiKey(), action.getSequence()));
         } catch (SQLException e) {
+            log.error("Couldn't send cache notifications, they will be sent again: {}", e.getMessage());
+            closeConnection();
+            retry(actions);
+        }
+    }
+
+    private String serialize(final CacheActionDto action) {
+        try {
+            var payload = objectMapper.writeValueAsString(action);
+            if (payload.getBytes(UTF_8).length > MAX_PAYLOAD_BYTES) {
+                // too many changes, receivers reload the whole collection
+                action.setDelta(null);
+                payload = objectMapper.writeValueAsString(action);
+            }
+
+            return payload;
+        } catch (JsonProcessingException e) {
             log.error(e.getMessage());
+            return null;
+        }
+    }
+
+    private void send(final List<String> payloads) throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = pgNotificationDatasource.getConnection();
+        }
+
+        try (val statement = connection.prepareStatement(NOTIFY_QUERY)) {
+            statement.setString(1, CHANNEL);
+            statement.setArray(2, connection.createArrayOf("text", payloads.toArray()));
+            statement.execute();
+        }
+    }
+
+    private void retry(final List<CacheActionDto> actions) {
+        synchronized (this) {
+            val newer = new LinkedHashMap<>(pending);
+            pending.clear();
+            actions.forEach(action -> pending.put(action.getApiKey(), action));
+            newer.values().forEach(action -> pending.merge(action.getApiKey(), action, NotificationSenderService::coalesce));
+            if (flushScheduled || executor.isShutdown()) {
+                return;
+            }
+            flushScheduled = true;
+        }
+
+        executor.schedule(this::flush, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Couldn't close notification connection: {}", e.getMessage());
         }
+        connection = null;
     }
 }
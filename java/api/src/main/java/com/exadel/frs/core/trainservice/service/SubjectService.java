@@ -14,6 +14,7 @@ import com.exadel.frs.core.trainservice.cache.EmbeddingCacheProvider;
 import com.exadel.frs.core.trainservice.component.FaceClassifierPredictor;
 import com.exadel.frs.core.trainservice.component.classifiers.EuclideanDistanceClassifier;
 import com.exadel.frs.core.trainservice.dao.SubjectDao;
+import com.exadel.frs.core.trainservice.dto.CacheDeltaDto;
 import com.exadel.frs.core.trainservice.dto.EmbeddingInfo;
 import com.exadel.frs.core.trainservice.dto.EmbeddingVerificationProcessResult;
 import com.exadel.frs.core.trainservice.dto.EmbeddingsVerificationProcessResponse;
@@ -30,7 +31,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ArrayUtils;
@@ -78,6 +78,7 @@ public class SubjectService {
             if (removed > 0) {
                 embeddingCacheProvider.ifPresent(
                         apiKey,
+                        CacheDeltaDto.removedSubject(subjectName),
                         c -> c.removeEmbeddingsBySubjectName(subjectName)
                 );
             }
@@ -103,6 +104,7 @@ public class SubjectService {
         // remove subject from cache if required
         embeddingCacheProvider.ifPresent(
                 apiKey,
+                CacheDeltaDto.removedSubject(subjectName),
                 c -> c.removeEmbeddingsBySubjectName(subjectName)
         );
 
@@ -115,6 +117,7 @@ public class SubjectService {
         // remove embedding from cache if required
         embeddingCacheProvider.ifPresent(
                 apiKey,
+                CacheDeltaDto.removedEmbedding(embedding.getId()),
                 c -> c.removeEmbedding(embedding)
         );
 
@@ -144,6 +147,7 @@ public class SubjectService {
             // update cache if required
             embeddingCacheProvider.ifPresent(
                     apiKey,
+                    CacheDeltaDto.renamedSubject(oldSubjectName, newSubjectName),
                     c -> c.updateSubjectName(oldSubjectName, newSubjectName)
             );
         }
@@ -206,8 +210,8 @@ public class SubjectService {
             throw new TooManyFacesException();
         }
 
-        Double[] embedding = result.stream().findFirst().orElseThrow().getEmbedding();
-        double[] normalized = classifier.normalizeOne(Arrays.stream(embedding).mapToDouble(d -> d).toArray());
+        double[] embedding = result.stream().findFirst().orElseThrow().getEmbedding();
+        double[] normalized = classifier.normalizeOne(embedding);
 
         var embeddingToSave = new EmbeddingInfo(
                 findFacesResponse.getPluginsVersions().getCalculator(),
@@ -219,6 +223,7 @@ public class SubjectService {
 
         embeddingCacheProvider.ifPresent(
                 modelKey,
+                CacheDeltaDto.addedEmbedding(pair.getRight().getId()),
                 subjectCollection -> subjectCollection.addEmbedding(pair.getRight())
         );
 
@@ -251,7 +256,7 @@ public class SubjectService {
         for (var findResult : findFacesResponse.getResult()) {
             var prediction = predictor.verify(
                     processImageParams.getApiKey(),
-                    Stream.of(findResult.getEmbedding()).mapToDouble(d -> d).toArray(),
+                    findResult.getEmbedding(),
                     embeddingId
             );
 
@@ -0,0 +1,113 @@
+package com.exadel.frs.core.trainservice.util;
+
+/**
+ * Keeps indexes of the k highest scores offered to it, in O(log k) per offer and without allocations
+ * (a bounded min-heap over primitive arrays, the lowest kept score is on top).
+ * <p>
+ * Equal scores are ordered by index, the lower index wins, same as a stable sort would do.
+ */
+public class TopK {
+
+    private final int[] indexes;
+    private final double[] scores;
+    private int size;
+
+    public TopK(final int k) {
+        this.indexes = new int[Math.max(k, 0)];
+        this.scores = new double[Math.max(k, 0)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(final int index, final double score) {
+        if (size < indexes.length) {
+            indexes[size] = index;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && isWorse(indexes[0], scores[0], index, score)) {
+            indexes[0] = index;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Drains the kept indexes, after that the instance is empty.
+     *
+     * @return kept indexes, the highest score first
+     */
+    public int[] sortedIndexes() {
+        return sortedIndexes(new double[size]);
+    }
+
+    /**
+     * Same as {@link #sortedIndexes()}, also fills the given array with the scores of the returned indexes.
+     *
+     * @param sortedScores array of at least {@link #size()} elements, the score of every index is put at the same position
+     */
+    public int[] sortedIndexes(final double[] sortedScores) {
+        final int[] result = new int[size];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = indexes[0];
+            sortedScores[i] = scores[0];
+            size--;
+            indexes[0] = indexes[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+
+        return result;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            final int parent = (position - 1) / 2;
+            if (!isWorse(position, parent)) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            final int left = position * 2 + 1;
+            final int right = left + 1;
+            int worst = position;
+            if (left < size && isWorse(left, worst)) {
+                worst = left;
+            }
+            if (right < size && isWorse(right, worst)) {
+                worst = right;
+            }
+            if (worst == position) {
+                return;
+            }
+            swap(position, worst);
+            position = worst;
+        }
+    }
+
+    private boolean isWorse(final int position1, final int position2) {
+        return isWorse(indexes[position1], scores[position1], indexes[position2], scores[position2]);
+    }
+
+    private static boolean isWorse(final int index1, final double score1, final int index2, final double score2) {
+        final int compared = Double.compare(score1, score2);
+
+        return compared < 0 || compared == 0 && index1 > index2;
+    }
+
+    private void swap(final int position1, final int position2) {
+        final int index = indexes[position1];
+        indexes[position1] = indexes[position2];
+        indexes[position2] = index;
+
+        final double score = scores[position1];
+        scores[position1] = scores[position2];
+        scores[position2] = score;
+    }
+}
@@ -19,21 +19,47 @@ package com.exadel.frs.core.trainservice.cache;
 import static com.exadel.frs.core.trainservice.ItemsBuilder.makeEnhancedEmbeddingProjection;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import com.exadel.frs.commonservice.projection.EmbeddingProjection;
 import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
+import com.exadel.frs.core.trainservice.cache.EmbeddingCollectionStore.StoredCollection;
+import com.exadel.frs.core.trainservice.dto.CacheDeltaDto;
 import com.exadel.frs.core.trainservice.service.EmbeddingService;
 import com.exadel.frs.core.trainservice.service.NotificationReceiverService;
 import com.exadel.frs.core.trainservice.service.NotificationSenderService;
+import com.google.common.cache.Cache;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
 class EmbeddingCacheProviderTest {
@@ -49,9 +75,31 @@ class EmbeddingCacheProviderTest {
     @Mock
     private NotificationReceiverService notificationReceiverService;
 
+    @Mock
+    private EmbeddingCollectionStore collectionStore;
+
     @InjectMocks
     private EmbeddingCacheProvider embeddingCacheProvider;
 
+    @BeforeEach
+    void setUp() {
+        setUpBudget(16L);
+    }
+
+    private void setUpBudget(final long maxWeightMb) {
+        ReflectionTestUtils.setField(embeddingCacheProvider, "cacheMaxWeightMb", maxWeightMb);
+        ReflectionTestUtils.invokeMethod(embeddingCacheProvider, "postConstruct");
+    }
+
+    /**
+     * Take a bit more than 1 MB.
+     */
+    private static List<EnhancedEmbeddingProjection> weightedProjections() {
+        return IntStream.range(0, 512)
+                        .mapToObj(i -> new EnhancedEmbeddingProjection(UUID.randomUUID(), new double[256], "subject" + i))
+                        .toList();
+    }
+
     @Test
     void getOrLoad() {
         var projections = new EnhancedEmbeddingProjection[]{
@@ -73,4 +121,387 @@ class EmbeddingCacheProviderTest {
         assertThat(actual.getProjections().size(), is(projections.length));
         assertThat(actual.getEmbeddings(), notNullValue());
     }
+
+    @Test
+    void getOrLoadConcurrently() throws InterruptedException {
+        var apiKey = "concurrent_model_key";
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(apiKey), any()))
+                .thenAnswer(invocation -> {
+                    // slow load, so that all the threads come while it's in progress
+                    Thread.sleep(200);
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(makeEnhancedEmbeddingProjection("A")));
+                });
+
+        var threads = 8;
+        var start = new CountDownLatch(1);
+        var results = ConcurrentHashMap.<EmbeddingCollection>newKeySet();
+        var executor = Executors.newFixedThreadPool(threads);
+        for (var i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    results.add(embeddingCacheProvider.getOrLoad(apiKey));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertThat(results.size(), is(1));
+        verify(embeddingService, times(1)).doWithEnhancedEmbeddingProjectionStream(eq(apiKey), any());
+        // other nodes have nothing to update after a load
+        verify(notificationSenderService, never()).notifyCacheChange(any());
+    }
+
+    @Test
+    void receivePutOnCacheReloadsOnlyCachedCollection() {
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(makeEnhancedEmbeddingProjection("A")));
+                });
+
+        embeddingCacheProvider.receivePutOnCache(API_KEY);
+
+        verify(embeddingService, never()).doWithEnhancedEmbeddingProjectionStream(any(), any());
+
+        var loaded = embeddingCacheProvider.getOrLoad(API_KEY);
+        embeddingCacheProvider.receivePutOnCache(API_KEY);
+
+        verify(embeddingService, times(2)).doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any());
+        assertThat(embeddingCacheProvider.getOrLoad(API_KEY), not(sameInstance(loaded)));
+    }
+
+    @Test
+    void getOrLoadEvictsByWeight() {
+        // every collection takes a bit more than 1 MB, so only 16 of them fit into the budget
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(any(), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(IntStream.range(0, 512).mapToObj(i -> new EnhancedEmbeddingProjection(
+                            UUID.randomUUID(), new double[256], "subject" + i
+                    )));
+                });
+
+        for (var i = 0; i < 40; i++) {
+            embeddingCacheProvider.getOrLoad("weighted_model_key_" + i);
+        }
+
+        var residentBytes = embeddingCacheProvider.getResidentBytes();
+        assertThat(residentBytes.size(), is(lessThanOrEqualTo(16)));
+        assertThat(residentBytes.values().stream().mapToLong(Long::longValue).sum(), is(lessThanOrEqualTo(16L * 1024 * 1024)));
+        assertThat(residentBytes.containsKey("weighted_model_key_39"), is(true));
+    }
+
+    @Test
+    void getOrLoadKeepsOversizedCollection() {
+        setUpBudget(1L);
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(weightedProjections().stream());
+                });
+
+        var first = embeddingCacheProvider.getOrLoad(API_KEY);
+        var second = embeddingCacheProvider.getOrLoad(API_KEY);
+
+        assertThat(second, is(first));
+        assertThat(embeddingCacheProvider.getResidentBytes().containsKey(API_KEY), is(true));
+        verify(embeddingService, times(1)).doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any());
+    }
+
+    @Test
+    void compactionReweighsCollection() throws InterruptedException {
+        setUpBudget(1L);
+        var projections = weightedProjections();
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(projections.stream());
+                });
+        var collection = embeddingCacheProvider.getOrLoad(API_KEY);
+        var oversized = (Cache<String, EmbeddingCollection>) ReflectionTestUtils.getField(embeddingCacheProvider, "oversized");
+        assertThat(oversized.getIfPresent(API_KEY), is(collection));
+
+        // compaction is scheduled in background, it shrinks the collection into the budget
+        projections.subList(0, 400).forEach(projection -> collection.removeEmbedding(projection.embeddingId()));
+        for (var attempt = 0; attempt < 100 && oversized.getIfPresent(API_KEY) != null; attempt++) {
+            Thread.sleep(50);
+        }
+
+        assertThat(oversized.getIfPresent(API_KEY), is(nullValue()));
+        assertThat(embeddingCacheProvider.getOrLoad(API_KEY), is(collection));
+        verify(embeddingService, times(1)).doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any());
+    }
+
+    @Test
+    void defaultBudgetIsHalfOfMaxHeap() {
+        setUpBudget(0L);
+
+        assertThat(
+                ReflectionTestUtils.getField(embeddingCacheProvider, "cacheMaxWeightKb"),
+                is(Runtime.getRuntime().maxMemory() / 2 / 1024)
+        );
+    }
+
+    @Test
+    void getOrLoadRestoresStoredCollection() {
+        var kept = makeEnhancedEmbeddingProjection("A");
+        var removed = makeEnhancedEmbeddingProjection("B");
+        var added = makeEnhancedEmbeddingProjection("C");
+        var stored = EmbeddingCollection.from(Stream.of(kept, removed));
+        var calculators = Set.of("Facenet2018");
+
+        when(collectionStore.isEnabled()).thenReturn(true);
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(5L);
+        when(embeddingService.getCalculators(API_KEY)).thenReturn(calculators);
+        when(collectionStore.read(API_KEY, EmbeddingPrecision.DOUBLE)).thenReturn(Optional.of(new StoredCollection(
+                stored.getEmbeddings(),
+                new EmbeddingProjection[]{EmbeddingProjection.from(kept), EmbeddingProjection.from(removed)},
+                calculators,
+                3L
+        )));
+        var renamed = new EmbeddingProjection(kept.embeddingId(), "A2");
+        when(embeddingService.listEmbeddings(eq(API_KEY), isNull(), any()))
+                .thenReturn(new PageImpl<>(List.of(renamed, EmbeddingProjection.from(added))));
+        when(embeddingService.getEnhancedEmbeddingProjections(API_KEY, List.of(added.embeddingId())))
+                .thenReturn(List.of(added));
+
+        var actual = embeddingCacheProvider.getOrLoad(API_KEY);
+
+        assertThat(actual.getProjections(), is(Set.of(renamed, EmbeddingProjection.from(added))));
+        assertThat(actual.getRawEmbeddingById(added.embeddingId()).orElseThrow().toDoubleVector(), is(added.embeddingData()));
+        verify(embeddingService, never()).doWithEnhancedEmbeddingProjectionStream(any(), any());
+        verify(collectionStore).write(eq(API_KEY), eq(actual), eq(calculators));
+        assertThat(actual.getDatabaseVersion(), is(5L));
+    }
+
+    @Test
+    void getOrLoadRestoresUpToDateStoredCollectionWithoutComparing() {
+        var projections = List.of(makeEnhancedEmbeddingProjection("A"), makeEnhancedEmbeddingProjection("B"));
+        var stored = EmbeddingCollection.from(projections.stream());
+        var calculators = Set.of("Facenet2018");
+
+        when(collectionStore.isEnabled()).thenReturn(true);
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(5L);
+        when(embeddingService.getCalculators(API_KEY)).thenReturn(calculators);
+        when(collectionStore.read(API_KEY, EmbeddingPrecision.DOUBLE)).thenReturn(Optional.of(new StoredCollection(
+                stored.getEmbeddings(),
+                projections.stream().map(EmbeddingProjection::from).toArray(EmbeddingProjection[]::new),
+                calculators,
+                5L
+        )));
+
+        var actual = embeddingCacheProvider.getOrLoad(API_KEY);
+
+        assertThat(actual.getProjections(), is(stored.getProjections()));
+        assertThat(actual.getDatabaseVersion(), is(5L));
+        verify(embeddingService, never()).listEmbeddings(any(), any(), any());
+        verify(embeddingService, never()).doWithEnhancedEmbeddingProjectionStream(any(), any());
+        verify(collectionStore, never()).write(any(), any(), any());
+    }
+
+    @Test
+    void receiveDeltaOnCache() {
+        var kept = makeEnhancedEmbeddingProjection("A");
+        var removed = makeEnhancedEmbeddingProjection("B");
+        var added = makeEnhancedEmbeddingProjection("A");
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(kept, removed));
+                });
+        when(embeddingService.getEnhancedEmbeddingProjections(API_KEY, List.of(added.embeddingId())))
+                .thenReturn(List.of(added));
+        var collection = embeddingCacheProvider.getOrLoad(API_KEY);
+
+        var delta = CacheDeltaDto.renamedSubject("A", "A2");
+        delta.getRemovedEmbeddingIds().add(removed.embeddingId());
+        delta.getAddedEmbeddingIds().add(added.embeddingId());
+        embeddingCacheProvider.receiveDeltaOnCache(API_KEY, delta);
+
+        assertThat(collection.getProjections(), is(Set.of(
+                new EmbeddingProjection(kept.embeddingId(), "A2"),
+                // fetched with the current name
+                EmbeddingProjection.from(added)
+        )));
+        verify(embeddingService, times(1)).doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any());
+    }
+
+    @Test
+    void receiveDeltaOnCacheIgnoresAbsentCollection() {
+        embeddingCacheProvider.receiveDeltaOnCache(API_KEY, CacheDeltaDto.addedEmbedding(UUID.randomUUID()));
+
+        verifyNoInteractions(embeddingService);
+    }
+
+    @Test
+    void receiveSequence() {
+        assertThat(embeddingCacheProvider.receiveSequence("server", API_KEY, 5L), is(true));
+        assertThat(embeddingCacheProvider.receiveSequence("server", API_KEY, 6L), is(true));
+        assertThat(embeddingCacheProvider.receiveSequence("server", API_KEY, 8L), is(false));
+        assertThat(embeddingCacheProvider.receiveSequence("server", "another_model_key", 1L), is(true));
+        assertThat(embeddingCacheProvider.receiveSequence("server", API_KEY, null), is(false));
+    }
+
+    @Test
+    void checkVersionsCatchesUpOutdatedCollection() {
+        var kept = makeEnhancedEmbeddingProjection("A");
+        var removed = makeEnhancedEmbeddingProjection("B");
+        var moved = makeEnhancedEmbeddingProjection("B");
+        var added = makeEnhancedEmbeddingProjection("C");
+        var movedToA = new EnhancedEmbeddingProjection(moved.embeddingId(), moved.embeddingData(), "A");
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(kept, removed, moved));
+                });
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(3L, 5L);
+        var collection = embeddingCacheProvider.getOrLoad(API_KEY);
+        assertThat(collection.getDatabaseVersion(), is(3L));
+
+        when(embeddingService.getCollectionVersions(Set.of(API_KEY))).thenReturn(Map.of(API_KEY, 5L));
+        when(embeddingService.listEmbeddings(eq(API_KEY), isNull(), any())).thenReturn(new PageImpl<>(List.of(
+                EmbeddingProjection.from(kept),
+                EmbeddingProjection.from(movedToA),
+                EmbeddingProjection.from(added)
+        )));
+        when(embeddingService.getEnhancedEmbeddingProjections(API_KEY, List.of(moved.embeddingId(), added.embeddingId())))
+                .thenReturn(List.of(movedToA, added));
+
+        embeddingCacheProvider.checkVersions();
+
+        assertThat(collection.getProjections(), is(Set.of(
+                EmbeddingProjection.from(kept),
+                EmbeddingProjection.from(movedToA),
+                EmbeddingProjection.from(added)
+        )));
+        assertThat(collection.getDatabaseVersion(), is(5L));
+    }
+
+    @Test
+    void ifPresentAdvancesVersionOfFollowingChange() {
+        var removed = makeEnhancedEmbeddingProjection("A");
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(removed, makeEnhancedEmbeddingProjection("B")));
+                });
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(4L, 5L);
+        var collection = embeddingCacheProvider.getOrLoad(API_KEY);
+
+        embeddingCacheProvider.ifPresent(
+                API_KEY,
+                CacheDeltaDto.removedEmbedding(removed.embeddingId()),
+                c -> c.removeEmbedding(removed.embeddingId())
+        );
+
+        assertThat(collection.getDatabaseVersion(), is(5L));
+        verify(embeddingService, never()).listEmbeddings(any(), any(), any());
+    }
+
+    @Test
+    void ifPresentCatchesUpAfterMissedChange() {
+        var removed = makeEnhancedEmbeddingProjection("A");
+        var kept = makeEnhancedEmbeddingProjection("B");
+        // added by another node, its notification was lost
+        var missed = makeEnhancedEmbeddingProjection("C");
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(removed, kept));
+                });
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(4L, 6L);
+        var collection = embeddingCacheProvider.getOrLoad(API_KEY);
+        when(embeddingService.listEmbeddings(eq(API_KEY), isNull(), any())).thenReturn(new PageImpl<>(List.of(
+                EmbeddingProjection.from(kept),
+                EmbeddingProjection.from(missed)
+        )));
+        when(embeddingService.getEnhancedEmbeddingProjections(API_KEY, List.of(missed.embeddingId())))
+                .thenReturn(List.of(missed));
+
+        embeddingCacheProvider.ifPresent(
+                API_KEY,
+                CacheDeltaDto.removedEmbedding(removed.embeddingId()),
+                c -> c.removeEmbedding(removed.embeddingId())
+        );
+
+        assertThat(collection.getProjections(), is(Set.of(EmbeddingProjection.from(kept), EmbeddingProjection.from(missed))));
+        assertThat(collection.getDatabaseVersion(), is(6L));
+    }
+
+    @Test
+    void receiveDeltaOnCacheCatchesUpAfterMissedChange() {
+        var kept = makeEnhancedEmbeddingProjection("A");
+        var added = makeEnhancedEmbeddingProjection("B");
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(kept));
+                });
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(4L, 7L);
+        var collection = embeddingCacheProvider.getOrLoad(API_KEY);
+        when(embeddingService.getEnhancedEmbeddingProjections(API_KEY, List.of(added.embeddingId())))
+                .thenReturn(List.of(added));
+        when(embeddingService.listEmbeddings(eq(API_KEY), isNull(), any())).thenReturn(new PageImpl<>(List.of(
+                EmbeddingProjection.from(kept),
+                EmbeddingProjection.from(added)
+        )));
+
+        // a change of a third node, the one of version 5 was missed
+        var delta = CacheDeltaDto.addedEmbedding(added.embeddingId());
+        delta.setVersion(6L);
+        embeddingCacheProvider.receiveDeltaOnCache(API_KEY, delta);
+
+        verify(embeddingService).listEmbeddings(eq(API_KEY), isNull(), any());
+        assertThat(collection.getDatabaseVersion(), is(7L));
+    }
+
+    @Test
+    void receiveDeltaOnCacheAdvancesVersionOfMergedChanges() {
+        var kept = makeEnhancedEmbeddingProjection("A");
+        var added1 = makeEnhancedEmbeddingProjection("B");
+        var added2 = makeEnhancedEmbeddingProjection("C");
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(kept));
+                });
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(4L);
+        var collection = embeddingCacheProvider.getOrLoad(API_KEY);
+        when(embeddingService.getEnhancedEmbeddingProjections(API_KEY, List.of(added1.embeddingId(), added2.embeddingId())))
+                .thenReturn(List.of(added1, added2));
+
+        // changes of versions 5 and 6 of another node, sent as one
+        var delta = CacheDeltaDto.addedEmbedding(added1.embeddingId());
+        delta.setVersion(5L);
+        var next = CacheDeltaDto.addedEmbedding(added2.embeddingId());
+        next.setVersion(6L);
+        assertThat(delta.merge(next), is(true));
+        embeddingCacheProvider.receiveDeltaOnCache(API_KEY, delta);
+
+        verify(embeddingService, never()).listEmbeddings(any(), any(), any());
+        assertThat(collection.getProjections().size(), is(3));
+        assertThat(collection.getDatabaseVersion(), is(6L));
+    }
+
+    @Test
+    void checkVersionsSkipsUpToDateCollection() {
+        when(embeddingService.doWithEnhancedEmbeddingProjectionStream(eq(API_KEY), any()))
+                .thenAnswer(invocation -> {
+                    var function = (Function<Stream<EnhancedEmbeddingProjection>, ?>) invocation.getArgument(1);
+                    return function.apply(Stream.of(makeEnhancedEmbeddingProjection("A")));
+                });
+        when(embeddingService.getCollectionVersion(API_KEY)).thenReturn(3L);
+        embeddingCacheProvider.getOrLoad(API_KEY);
+        when(embeddingService.getCollectionVersions(Set.of(API_KEY))).thenReturn(Map.of(API_KEY, 3L));
+
+        embeddingCacheProvider.checkVersions();
+
+        verify(embeddingService, never()).listEmbeddings(any(), any(), any());
+    }
 }
@@ -0,0 +1,62 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import com.exadel.frs.commonservice.enums.ModelType;
+import com.exadel.frs.commonservice.repository.ModelStatisticRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingCacheWarmUpTest {
+
+    @Mock
+    private ModelStatisticRepository statisticRepository;
+
+    @Mock
+    private EmbeddingCacheProvider embeddingCacheProvider;
+
+    @InjectMocks
+    private EmbeddingCacheWarmUp warmUp;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(warmUp, "enabled", true);
+        ReflectionTestUtils.setField(warmUp, "models", 10);
+        ReflectionTestUtils.setField(warmUp, "periodDays", 7);
+        ReflectionTestUtils.setField(warmUp, "threads", 2);
+        ReflectionTestUtils.setField(warmUp, "timeoutSeconds", 10L);
+    }
+
+    @Test
+    void runLoadsMostRequestedModels() {
+        when(statisticRepository.findMostRequestedApiKeys(eq(ModelType.RECOGNITION), any(), any()))
+                .thenReturn(List.of("key1", "key2", "key3"));
+        doThrow(new IllegalStateException("broken")).when(embeddingCacheProvider).warmUp("key2");
+
+        warmUp.run(null);
+
+        verify(embeddingCacheProvider).warmUp("key1");
+        verify(embeddingCacheProvider).warmUp("key2");
+        verify(embeddingCacheProvider).warmUp("key3");
+    }
+
+    @Test
+    void runDoesNothingIfDisabled() {
+        ReflectionTestUtils.setField(warmUp, "enabled", false);
+
+        warmUp.run(null);
+
+        verifyNoInteractions(statisticRepository, embeddingCacheProvider);
+    }
+}
@@ -0,0 +1,112 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.exadel.frs.commonservice.projection.EmbeddingProjection;
+import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class EmbeddingCollectionStoreTest {
+
+    private static final String API_KEY = "model_key";
+    private static final Set<String> CALCULATORS = Set.of("Facenet2018");
+
+    @TempDir
+    Path dir;
+
+    private EmbeddingCollectionStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new EmbeddingCollectionStore();
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+    }
+
+    @Test
+    void testWriteAndRead() {
+        var removed = new EnhancedEmbeddingProjection(UUID.randomUUID(), new double[]{4.0, 5.0, 6.0}, "B");
+        var kept = new EnhancedEmbeddingProjection(UUID.randomUUID(), new double[]{1.0, 2.0, 3.0}, "A");
+        var collection = EmbeddingCollection.from(Stream.of(removed, kept), EmbeddingPrecision.FLOAT);
+        collection.removeEmbedding(EmbeddingProjection.from(removed));
+        collection.updateDatabaseVersion(7);
+
+        store.write(API_KEY, collection, CALCULATORS).join();
+        var stored = store.read(API_KEY, EmbeddingPrecision.FLOAT).orElseThrow();
+
+        assertThat(stored.calculators()).isEqualTo(CALCULATORS);
+        assertThat(stored.databaseVersion()).isEqualTo(7);
+        assertThat(stored.projections()).containsExactly(EmbeddingProjection.from(kept));
+        assertThat(stored.embeddings().toFloatMatrix()).isEqualTo(new float[][]{{1.0f, 2.0f, 3.0f}});
+    }
+
+    @Test
+    void testWriteAndReadOfSeveralChunks() {
+        // ~3 MB of rows, the file is read through several chunks, rows and strings cross their bounds
+        var random = new Random(3);
+        var projections = IntStream.range(0, 3000)
+                                   .mapToObj(i -> new EnhancedEmbeddingProjection(
+                                           UUID.randomUUID(), random.doubles(127).toArray(), "subject" + i
+                                   ))
+                                   .toList();
+        var collection = EmbeddingCollection.from(projections.stream());
+
+        store.write(API_KEY, collection, CALCULATORS).join();
+        var stored = store.read(API_KEY, EmbeddingPrecision.DOUBLE).orElseThrow();
+
+        assertThat(stored.projections())
+                .containsExactly(projections.stream().map(EmbeddingProjection::from).toArray(EmbeddingProjection[]::new));
+        assertThat(stored.embeddings().toDoubleMatrix()).isEqualTo(collection.getEmbeddings().toDoubleMatrix());
+    }
+
+    @Test
+    void testWriteAndReadOfEmbeddingWithoutId() {
+        var collection = EmbeddingCollection.from(
+                Stream.of(new EnhancedEmbeddingProjection(null, new double[]{1.0, 2.0}, "A"))
+        );
+
+        store.write(API_KEY, collection, CALCULATORS).join();
+
+        assertThat(store.read(API_KEY, EmbeddingPrecision.DOUBLE).orElseThrow().projections())
+                .containsExactly(new EmbeddingProjection(null, "A"));
+    }
+
+    @Test
+    void testReadOfAnotherDataType() {
+        var collection = EmbeddingCollection.from(
+                Stream.of(new EnhancedEmbeddingProjection(UUID.randomUUID(), new double[]{1.0, 2.0}, "A"))
+        );
+
+        store.write(API_KEY, collection, CALCULATORS).join();
+
+        assertThat(store.read(API_KEY, EmbeddingPrecision.FLOAT)).isEmpty();
+        assertThat(store.read(API_KEY, EmbeddingPrecision.DOUBLE)).isPresent();
+    }
+
+    @Test
+    void testReadOfCorruptedFile() throws IOException {
+        var collection = EmbeddingCollection.from(
+                Stream.of(new EnhancedEmbeddingProjection(UUID.randomUUID(), new double[]{1.0, 2.0}, "A"))
+        );
+        store.write(API_KEY, collection, CALCULATORS).join();
+
+        try (var files = Files.list(dir)) {
+            var file = files.findFirst().orElseThrow();
+            Files.write(file, new byte[]{1, 2, 3});
+        }
+
+        assertThat(store.read(API_KEY, EmbeddingPrecision.DOUBLE)).isEmpty();
+        try (var files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
@@ -19,11 +19,16 @@ package com.exadel.frs.core.trainservice.cache;
 import static com.exadel.frs.core.trainservice.ItemsBuilder.makeEmbedding;
 import static com.exadel.frs.core.trainservice.ItemsBuilder.makeEnhancedEmbeddingProjection;
 import static org.assertj.core.api.Assertions.assertThat;
+import com.exadel.frs.commonservice.entity.Embedding;
 import com.exadel.frs.commonservice.projection.EmbeddingProjection;
 import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.api.buffer.DataType;
 
 class EmbeddingCollectionTest {
 
@@ -94,8 +99,205 @@ class EmbeddingCollectionTest {
 
         embeddingCollection.removeEmbedding(EmbeddingProjection.from(projection1));
 
+        // removed row is tombstoned until compaction
         assertThat(embeddingCollection.getProjections()).hasSize(projections.length - 1);
+        assertThat(embeddingCollection.getIndexMap()).doesNotContainKey(0);
+        assertThat(embeddingCollection.getIndexMap()).containsEntry(1, EmbeddingProjection.from(projection2));
+        assertThat(embeddingCollection.getIndexMap()).containsEntry(2, EmbeddingProjection.from(projection3));
+
+        embeddingCollection.compact();
+
+        assertThat(embeddingCollection.getEmbeddings().rows()).isEqualTo(projections.length - 1);
         assertThat(embeddingCollection.getIndexMap()).containsEntry(0, EmbeddingProjection.from(projection2));
         assertThat(embeddingCollection.getIndexMap()).containsEntry(1, EmbeddingProjection.from(projection3));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testReceivedChangesAreIdempotent() {
+        var projection1 = makeEnhancedEmbeddingProjection("A");
+        var projection2 = makeEnhancedEmbeddingProjection("B");
+        var embeddingCollection = EmbeddingCollection.from(Stream.of(projection1));
+
+        assertThat(embeddingCollection.addEmbedding(projection1)).isNull();
+        assertThat(embeddingCollection.addEmbedding(projection2)).isEqualTo(EmbeddingProjection.from(projection2));
+        assertThat(embeddingCollection.getProjections()).hasSize(2);
+
+        assertThat(embeddingCollection.removeEmbedding(projection1.embeddingId())).isEqualTo(EmbeddingProjection.from(projection1));
+        assertThat(embeddingCollection.removeEmbedding(projection1.embeddingId())).isNull();
+        assertThat(embeddingCollection.getProjections()).containsExactly(EmbeddingProjection.from(projection2));
+    }
+
+    @Test
+    void testAddGrowsMatrix() {
+        var embeddingCollection = EmbeddingCollection.from(Stream.of(makeEnhancedEmbeddingProjection("A")));
+
+        for (int i = 0; i < 100; i++) {
+            embeddingCollection.addEmbedding(makeEmbedding(UUID.randomUUID(), "B", API_KEY).setEmbedding(new double[]{i, i, i}));
+        }
+
+        var embeddings = embeddingCollection.getEmbeddings();
+        assertThat(embeddings.rows()).isEqualTo(101);
+        assertThat(embeddings.getRow(0).toDoubleVector()).containsExactly(1.1, 2.2, 3.3);
+        assertThat(embeddings.getRow(100).toDoubleVector()).containsExactly(99, 99, 99);
+    }
+
+    @Test
+    void testCompactKeepsLiveRows() {
+        var embeddingCollection = EmbeddingCollection.from(Stream.of());
+        var embeddings = new ArrayList<Embedding>();
+        for (int i = 0; i < 10; i++) {
+            var embedding = makeEmbedding(UUID.randomUUID(), "subject" + i, API_KEY).setEmbedding(new double[]{i, i, i});
+            embeddings.add(embedding);
+            embeddingCollection.addEmbedding(embedding);
+        }
+
+        for (int i = 0; i < 10; i += 2) {
+            embeddingCollection.removeEmbedding(embeddings.get(i));
+        }
+        embeddingCollection.compact();
+
+        var matrix = embeddingCollection.getEmbeddings();
+        assertThat(matrix.rows()).isEqualTo(5);
+        embeddingCollection.getIndexMap().forEach((row, projection) -> {
+            var expected = Integer.parseInt(projection.subjectName().substring("subject".length()));
+            assertThat(matrix.getRow(row).toDoubleVector()).containsExactly(expected, expected, expected);
+        });
+    }
+
+    @Test
+    void testSnapshotIsNotAffectedByLaterChanges() {
+        var embeddingCollection = EmbeddingCollection.from(Stream.of());
+        var embeddings = new ArrayList<Embedding>();
+        for (int i = 0; i < 3; i++) {
+            var embedding = makeEmbedding(UUID.randomUUID(), "subject" + i, API_KEY).setEmbedding(new double[]{i, i, i});
+            embeddings.add(embedding);
+            embeddingCollection.addEmbedding(embedding);
+        }
+
+        var snapshot = embeddingCollection.snapshot();
+
+        embeddingCollection.removeEmbedding(embeddings.get(0));
+        embeddingCollection.compact();
+        for (int i = 3; i < 40; i++) {
+            embeddingCollection.addEmbedding(makeEmbedding(UUID.randomUUID(), "subject" + i, API_KEY).setEmbedding(new double[]{i, i, i}));
+        }
+
+        assertThat(embeddingCollection.snapshot().getVersion()).isGreaterThan(snapshot.getVersion());
+        assertThat(snapshot.getSize()).isEqualTo(3);
+        assertThat(snapshot.getEmbeddings().rows()).isEqualTo(3);
+        for (int row = 0; row < 3; row++) {
+            assertThat(snapshot.getEmbeddings().getRow(row).toDoubleVector()).containsExactly(row, row, row);
+        }
+        assertThat(snapshot.findRow(embeddings.get(1).getId())).contains(1);
+    }
+
+    @Test
+    void testRawEmbeddingIsCopy() {
+        var embedding = makeEmbedding(UUID.randomUUID(), "A", API_KEY).setEmbedding(new double[]{1, 2, 3});
+        var embeddingCollection = EmbeddingCollection.from(Stream.of());
+        embeddingCollection.addEmbedding(embedding);
+
+        embeddingCollection.getRawEmbeddingById(embedding.getId()).orElseThrow().assign(0);
+
+        assertThat(embeddingCollection.getRawEmbeddingById(embedding.getId()).orElseThrow().toDoubleVector())
+                .containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void testSnapshotKeepsProjectionsOfRenamedAndRemovedEmbeddings() {
+        var projection1 = makeEnhancedEmbeddingProjection("A");
+        var projection2 = makeEnhancedEmbeddingProjection("B");
+        var embeddingCollection = EmbeddingCollection.from(Stream.of(projection1, projection2));
+
+        var snapshot = embeddingCollection.snapshot();
+
+        embeddingCollection.updateSubjectName("A", "C");
+        embeddingCollection.removeEmbeddingsBySubjectName("B");
+
+        assertThat(snapshot.getProjection(0)).isEqualTo(EmbeddingProjection.from(projection1));
+        assertThat(snapshot.getProjection(1)).isEqualTo(EmbeddingProjection.from(projection2));
+        assertThat(snapshot.findRow(projection2.embeddingId())).contains(1);
+
+        var current = embeddingCollection.snapshot();
+        assertThat(current.getProjection(0).subjectName()).isEqualTo("C");
+        assertThat(current.getProjection(1)).isNull();
+        assertThat(current.findRow(projection2.embeddingId())).isEmpty();
+    }
+
+    @Test
+    void testSnapshotsKeepTheirVersionsOfRepeatedlyChangedRow() {
+        var projection = makeEnhancedEmbeddingProjection("A");
+        var embeddingCollection = EmbeddingCollection.from(Stream.of(projection, makeEnhancedEmbeddingProjection("B")));
+
+        var first = embeddingCollection.snapshot();
+        embeddingCollection.updateSubjectName("A", "C");
+        var second = embeddingCollection.snapshot();
+        embeddingCollection.updateSubjectName("C", "D");
+        var third = embeddingCollection.snapshot();
+        embeddingCollection.removeEmbedding(projection.embeddingId());
+
+        assertThat(first.getProjection(0).subjectName()).isEqualTo("A");
+        assertThat(second.getProjection(0).subjectName()).isEqualTo("C");
+        assertThat(third.getProjection(0).subjectName()).isEqualTo("D");
+        assertThat(third.findRow(projection.embeddingId())).contains(0);
+        assertThat(embeddingCollection.snapshot().getProjection(0)).isNull();
+        assertThat(embeddingCollection.snapshot().findRow(projection.embeddingId())).isEmpty();
+
+        embeddingCollection.compact();
+
+        assertThat(embeddingCollection.getProjections()).extracting(EmbeddingProjection::subjectName).containsExactly("B");
+        assertThat(third.getProjection(0).subjectName()).isEqualTo("D");
+    }
+
+    @Test
+    void testRestoreKeepsGivenRowsAndAppendsDelta() {
+        var stored = IntStream.range(0, 5)
+                              .mapToObj(i -> new EnhancedEmbeddingProjection(UUID.randomUUID(), new double[]{i, i + 0.5}, "S" + i))
+                              .toList();
+        var matrix = EmbeddingCollection.from(stored.stream()).getEmbeddings();
+        var rows = new int[]{0, 2, 3};
+        var added = new EnhancedEmbeddingProjection(UUID.randomUUID(), new double[]{9.0, 9.5}, "D");
+
+        var restored = EmbeddingCollection.restore(
+                matrix,
+                rows,
+                IntStream.of(rows).mapToObj(row -> EmbeddingProjection.from(stored.get(row))).toArray(EmbeddingProjection[]::new),
+                List.of(added),
+                EmbeddingPrecision.DOUBLE
+        );
+
+        for (var row : rows) {
+            var embeddingId = stored.get(row).embeddingId();
+            assertThat(restored.getRawEmbeddingById(embeddingId).orElseThrow().toDoubleVector())
+                    .isEqualTo(stored.get(row).embeddingData());
+        }
+        assertThat(restored.getRawEmbeddingById(added.embeddingId()).orElseThrow().toDoubleVector()).isEqualTo(added.embeddingData());
+        assertThat(restored.getProjections()).hasSize(4);
+    }
+
+    @Test
+    void testFloatPrecision() {
+        var embeddingCollection = EmbeddingCollection.from(
+                Stream.of(makeEnhancedEmbeddingProjection("A"), makeEnhancedEmbeddingProjection("B")),
+                EmbeddingPrecision.FLOAT
+        );
+        embeddingCollection.addEmbedding(makeEmbedding("C", API_KEY).setEmbedding(new double[]{4.4, 5.5, 6.6}));
+
+        var snapshot = embeddingCollection.snapshot();
+        assertThat(snapshot.getEmbeddings().dataType()).isEqualTo(DataType.FLOAT);
+        assertThat(snapshot.getEmbeddings().rows()).isEqualTo(3);
+    }
+
+    @Test
+    void testResidentBytesGrowWithCapacity() {
+        var embeddingCollection = EmbeddingCollection.from(Stream.of(makeEnhancedEmbeddingProjection("A")), EmbeddingPrecision.FLOAT);
+        var initial = embeddingCollection.getResidentBytes();
+
+        for (int i = 0; i < 20; i++) {
+            embeddingCollection.addEmbedding(makeEmbedding("B" + i, API_KEY).setEmbedding(new double[]{1, 2, 3}));
+        }
+
+        assertThat(initial).isPositive();
+        assertThat(embeddingCollection.getResidentBytes()).isGreaterThan(initial);
+    }
+}
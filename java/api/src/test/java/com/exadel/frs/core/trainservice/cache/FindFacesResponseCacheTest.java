@@ -0,0 +1,118 @@
+package com.exadel.frs.core.trainservice.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.exadel.frs.commonservice.sdk.faces.exception.NoFacesFoundException;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesBox;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResult;
+import com.exadel.frs.core.trainservice.dto.ProcessImageParams;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class FindFacesResponseCacheTest {
+
+    private final FindFacesResponseCache cache = new FindFacesResponseCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60000);
+        ReflectionTestUtils.invokeMethod(cache, "postConstruct");
+    }
+
+    @Test
+    void returnsCachedResponseOfSameImage() {
+        var first = cache.get(file("image", 1), true, loader());
+        var second = cache.get(file("image", 1), true, loader());
+
+        assertThat(second).isEqualTo(first).isNotSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void changesOfReturnedResponseDontChangeCachedOne() {
+        var loaded = cache.get(file("image", 1), true, loader());
+        loaded.getResult().get(0).getBox().setProbability(0.1);
+        loaded.getResult().get(0).getEmbedding()[0] = 0.1;
+
+        var cached = cache.get(file("image", 1), true, loader());
+        cached.getResult().get(0).getBox().setProbability(0.2);
+        cached.getResult().get(0).getEmbedding()[0] = 0.2;
+        cached.getResult().add(new FindFacesResult());
+
+        var result = cache.get(file("image", 1), true, loader()).getResult();
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getBox().getProbability()).isEqualTo(0.9);
+        assertThat(result.get(0).getEmbedding()).containsExactly(1.0, 2.0);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadsResponseOfAnotherImageOrParameters() {
+        cache.get(file("image", 1), true, loader());
+        cache.get(file("another image", 1), true, loader());
+        cache.get(file("image", 2), true, loader());
+        cache.get(file("image", 1), false, loader());
+        cache.get(base64("aW1hZ2U=", 1), true, loader());
+
+        assertThat(loads).hasValue(5);
+    }
+
+    @Test
+    void cachesNoFacesFound() {
+        Supplier<FindFacesResponse> noFaces = () -> {
+            loads.incrementAndGet();
+            throw new NoFacesFoundException();
+        };
+
+        assertThatThrownBy(() -> cache.get(base64("aW1hZ2U=", 1), true, noFaces)).isInstanceOf(NoFacesFoundException.class);
+        assertThatThrownBy(() -> cache.get(base64("aW1hZ2U=", 1), true, noFaces)).isInstanceOf(NoFacesFoundException.class);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void alwaysLoadsResponseWhenDisabled() {
+        var disabled = new FindFacesResponseCache();
+        ReflectionTestUtils.invokeMethod(disabled, "postConstruct");
+
+        disabled.get(file("image", 1), true, loader());
+        disabled.get(file("image", 1), true, loader());
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private Supplier<FindFacesResponse> loader() {
+        return () -> {
+            loads.incrementAndGet();
+            var result = FindFacesResult.builder()
+                                        .box(new FacesBox().setProbability(0.9))
+                                        .embedding(new double[]{1.0, 2.0})
+                                        .build();
+            return new FindFacesResponse(null, new ArrayList<>(List.of(result)));
+        };
+    }
+
+    private static ProcessImageParams file(final String content, final int limit) {
+        return ProcessImageParams.builder()
+                                 .file(new MockMultipartFile("file", content.getBytes()))
+                                 .limit(limit)
+                                 .build();
+    }
+
+    private static ProcessImageParams base64(final String image, final int limit) {
+        return ProcessImageParams.builder()
+                                 .imageBase64(image)
+                                 .limit(limit)
+                                 .build();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.core.trainservice.cache;
+
+import static com.exadel.frs.core.trainservice.ItemsBuilder.makeEmbedding;
+import static org.assertj.core.api.Assertions.assertThat;
+import com.exadel.frs.commonservice.projection.EmbeddingProjection;
+import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+    // a new instance for every test, so the vectors don't depend on the order of tests
+    private final Random random = new Random(7);
+
+    @Test
+    void testSearchEmpty() {
+        var index = new HnswIndex(8, 50);
+
+        assertThat(index.search(randomVector(), 5, 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void testSearchFindsExactMatch() {
+        var index = new HnswIndex(8, 50);
+        var vectors = IntStream.range(0, 500)
+                               .mapToObj(i -> randomVector())
+                               .toArray(double[][]::new);
+        var projections = new EmbeddingProjection[vectors.length];
+        for (var i = 0; i < vectors.length; i++) {
+            projections[i] = new EmbeddingProjection(UUID.randomUUID(), "subject" + i);
+            index.add(projections[i], vectors[i]);
+        }
+
+        for (var i = 0; i < vectors.length; i += 50) {
+            var result = index.search(vectors[i], 1, 50);
+
+            assertThat(result).hasSize(1);
+            assertThat(result.get(0).getRight()).isEqualTo(projections[i]);
+            assertThat(result.get(0).getLeft()).isZero();
+        }
+    }
+
+    @Test
+    void testSearchReturnsClosestFirst() {
+        var index = new HnswIndex(8, 50);
+        IntStream.range(0, 200).forEach(i -> index.add(new EmbeddingProjection(UUID.randomUUID(), "s" + i), randomVector()));
+
+        var result = index.search(randomVector(), 10, 50);
+
+        assertThat(result).hasSize(10);
+        assertThat(result).isSortedAccordingTo(Comparator.comparing(Pair::getLeft));
+    }
+
+    @Test
+    void testRemovedAreNotReturned() {
+        var index = new HnswIndex(8, 50);
+        var vector = randomVector();
+        var projection = new EmbeddingProjection(UUID.randomUUID(), "removed");
+        index.add(projection, vector);
+        IntStream.range(0, 100).forEach(i -> index.add(new EmbeddingProjection(UUID.randomUUID(), "s" + i), randomVector()));
+
+        index.remove(projection.embeddingId());
+
+        assertThat(index.size()).isEqualTo(100);
+        assertThat(index.search(vector, 100, 100))
+                .extracting(Pair::getRight)
+                .doesNotContain(projection);
+    }
+
+    @Test
+    void testRebuildsInBackgroundWhenMostNodesAreRemoved() throws InterruptedException {
+        var index = new HnswIndex(8, 50);
+        var projections = IntStream.range(0, 300)
+                                   .mapToObj(i -> new EmbeddingProjection(UUID.randomUUID(), "s" + i))
+                                   .toList();
+        var vectors = projections.stream().map(projection -> randomVector()).toList();
+        for (var i = 0; i < projections.size(); i++) {
+            index.add(projections.get(i), vectors.get(i));
+        }
+        var residentBytes = index.getResidentBytes();
+
+        for (var i = 0; i < 200; i++) {
+            index.remove(projections.get(i).embeddingId());
+        }
+        // added while the graph may be being rebuilt, it must not be lost
+        var added = new EmbeddingProjection(UUID.randomUUID(), "added");
+        var addedVector = randomVector();
+        index.add(added, addedVector);
+
+        for (var attempt = 0; attempt < 100 && index.getResidentBytes() >= residentBytes; attempt++) {
+            Thread.sleep(50);
+        }
+
+        assertThat(index.getResidentBytes()).isLessThan(residentBytes);
+        assertThat(index.size()).isEqualTo(101);
+        assertThat(index.search(addedVector, 1, 50).get(0).getRight()).isEqualTo(added);
+        assertThat(index.search(vectors.get(250), 1, 50).get(0).getRight()).isEqualTo(projections.get(250));
+    }
+
+    @Test
+    void testIndexIsCountedInResidentBytes() {
+        var collection = EmbeddingCollection.from(IntStream.range(0, 100).mapToObj(i ->
+                new EnhancedEmbeddingProjection(UUID.randomUUID(), randomVector(), "s" + i)
+        ));
+        var residentBytes = collection.getResidentBytes();
+        var index = new HnswIndex(8, 50);
+
+        collection.attachIndex(index);
+
+        assertThat(index.getResidentBytes()).isGreaterThan(100L * DIMENSION * Double.BYTES);
+        assertThat(collection.getResidentBytes()).isEqualTo(residentBytes + index.getResidentBytes());
+    }
+
+    @Test
+    void testCollectionKeepsIndexInSync() {
+        var collection = EmbeddingCollection.from(Stream.of(
+                new EnhancedEmbeddingProjection(UUID.randomUUID(), randomVector(), "A"),
+                new EnhancedEmbeddingProjection(UUID.randomUUID(), randomVector(), "B")
+        ));
+        var index = new HnswIndex(8, 50);
+        collection.attachIndex(index);
+        assertThat(index.size()).isEqualTo(2);
+
+        var embedding = makeEmbedding(UUID.randomUUID(), "C", "api_key").setEmbedding(randomVector());
+        collection.addEmbedding(embedding);
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.search(embedding.getEmbedding(), 1, 10).get(0).getRight().subjectName()).isEqualTo("C");
+
+        collection.updateSubjectName("C", "D");
+        assertThat(index.search(embedding.getEmbedding(), 1, 10).get(0).getRight().subjectName()).isEqualTo("D");
+
+        collection.removeEmbeddingsBySubjectName("D");
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    private double[] randomVector() {
+        var vector = new double[DIMENSION];
+        for (var i = 0; i < DIMENSION; i++) {
+            vector[i] = random.nextGaussian();
+        }
+
+        return vector;
+    }
+}
@@ -1,6 +1,10 @@
 package com.exadel.frs.core.trainservice.cache;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +17,7 @@ class ModelStatisticCacheProviderTest {
 
     @AfterEach
     void cleanup() {
-        cacheProvider.invalidateCache();
+        cacheProvider.drain();
     }
 
     @Test
@@ -27,28 +31,62 @@ class ModelStatisticCacheProviderTest {
         cacheProvider.incrementRequestCount(3L);
         cacheProvider.incrementRequestCount(3L);
 
-        var cache = cacheProvider.getCacheCopyAsMap();
+        var cache = cacheProvider.drain();
 
         assertThat(cache).isNotNull().hasSize(3)
-                         .containsEntry(1L, 1)
-                         .containsEntry(2L, 2)
-                         .containsEntry(3L, 3);
+                         .containsEntry(1L, 1L)
+                         .containsEntry(2L, 2L)
+                         .containsEntry(3L, 3L);
     }
 
     @Test
-    void shouldInvalidateAllCacheWhenInvalidateCacheMethodInvoked() {
+    void shouldResetCountersWhenDrainMethodInvoked() {
         cacheProvider.incrementRequestCount(1L);
         cacheProvider.incrementRequestCount(2L);
         cacheProvider.incrementRequestCount(3L);
 
-        var cacheBefore = cacheProvider.getCacheCopyAsMap();
+        var cacheBefore = cacheProvider.drain();
 
         assertThat(cacheBefore).isNotNull().hasSize(3);
 
-        cacheProvider.invalidateCache();
+        cacheProvider.incrementRequestCount(2L);
+
+        var cacheAfter = cacheProvider.drain();
+
+        assertThat(cacheAfter).isNotNull().hasSize(1).containsEntry(2L, 1L);
+    }
+
+    @Test
+    void shouldNotLoseRequestsCountedWhileDraining() throws Exception {
+        var threads = 4;
+        var requestsPerThread = 100_000;
+        var executor = Executors.newFixedThreadPool(threads);
+        var drained = new AtomicLong();
+        var counting = new AtomicBoolean(true);
+
+        try {
+            var drainer = CompletableFuture.runAsync(() -> {
+                while (counting.get()) {
+                    cacheProvider.drain().values().forEach(drained::addAndGet);
+                }
+            });
 
-        var cacheAfter = cacheProvider.getCacheCopyAsMap();
+            var counters = new CompletableFuture<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                counters[i] = CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        cacheProvider.incrementRequestCount(j % 2);
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(counters).get();
+            counting.set(false);
+            drainer.get();
+        } finally {
+            executor.shutdown();
+        }
+        cacheProvider.drain().values().forEach(drained::addAndGet);
 
-        assertThat(cacheAfter).isNotNull().isEmpty();
+        assertThat(drained.get()).isEqualTo((long) threads * requestsPerThread);
     }
 }
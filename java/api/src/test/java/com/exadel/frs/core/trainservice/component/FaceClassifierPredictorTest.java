@@ -64,6 +64,22 @@ class FaceClassifierPredictorTest {
         verifyNoMoreInteractions(classifier);
     }
 
+    @Test
+    void predictBatch() {
+        double[][] inputs = new double[2][0];
+        int resultCount = 1;
+        val expected = List.of(List.of(Pair.of(1.0, "")), List.of(Pair.of(0.5, "")));
+
+        when(classifier.predictBatch(inputs, MODEL_KEY, resultCount)).thenReturn(expected);
+
+        val actual = faceClassifierPredictor.predictBatch(MODEL_KEY, inputs, resultCount);
+
+        assertThat(actual).isEqualTo(expected);
+
+        verify(classifier).predictBatch(inputs, MODEL_KEY, resultCount);
+        verifyNoMoreInteractions(classifier);
+    }
+
     @Test
     void verifyTest() {
         double[] input = new double[0];
@@ -0,0 +1,96 @@
+package com.exadel.frs.core.trainservice.component.classifiers;
+
+import static com.exadel.frs.core.trainservice.component.classifiers.EuclideanDistanceClassifier.PREDICTION_COUNT_INFINITY;
+import static com.exadel.frs.core.trainservice.ItemsBuilder.makeEmbedding;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.when;
+import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
+import com.exadel.frs.core.trainservice.cache.EmbeddingCacheProvider;
+import com.exadel.frs.core.trainservice.cache.EmbeddingCollection;
+import com.exadel.frs.core.trainservice.component.classifiers.SimilarityCoefficientsProvider.SimilarityCoefficients;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class EuclideanDistanceClassifierTest {
+
+    private static final String API_KEY = "api_key";
+    private static final int DIMENSION = 16;
+
+    @Mock
+    private EmbeddingCacheProvider embeddingCacheProvider;
+
+    @Mock
+    private SimilarityCoefficientsProvider similarityCoefficientsProvider;
+
+    @InjectMocks
+    private EuclideanDistanceClassifier classifier;
+
+    private final Random random = new Random(5);
+
+    @BeforeEach
+    void setUp() {
+        var collection = EmbeddingCollection.from(
+                IntStream.range(0, 50).mapToObj(i -> new EnhancedEmbeddingProjection(UUID.randomUUID(), randomVector(), "subject" + i))
+        );
+        // rows added later go through growth of the matrix and of the norms
+        IntStream.range(50, 70).forEach(i -> collection.addEmbedding(
+                makeEmbedding(UUID.randomUUID(), "subject" + i, API_KEY).setEmbedding(randomVector())
+        ));
+        when(embeddingCacheProvider.getOrLoad(API_KEY)).thenReturn(collection);
+        when(similarityCoefficientsProvider.getCoefficients()).thenReturn(new SimilarityCoefficients("calculator", 1.1, 5.0));
+    }
+
+    @Test
+    void testPredictBatchMatchesPredict() {
+        var inputs = Stream.generate(this::randomVector).limit(5).toArray(double[][]::new);
+
+        for (var resultCount : new int[]{1, 3, PREDICTION_COUNT_INFINITY}) {
+            var batch = classifier.predictBatch(inputs, API_KEY, resultCount);
+
+            assertThat(batch).hasSize(inputs.length);
+            for (int i = 0; i < inputs.length; i++) {
+                var single = classifier.predict(inputs[i], API_KEY, resultCount);
+
+                assertThat(batch.get(i)).hasSameSizeAs(single);
+                for (int j = 0; j < single.size(); j++) {
+                    assertThat(batch.get(i).get(j).getRight()).isEqualTo(single.get(j).getRight());
+                    assertThat(batch.get(i).get(j).getLeft()).isCloseTo(single.get(j).getLeft(), within(1e-9));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testParallelScanMatchesSequential() {
+        var inputs = Stream.generate(this::randomVector).limit(5).toArray(double[][]::new);
+        var sequential = Stream.of(inputs).map(input -> classifier.predict(input, API_KEY, 3)).toList();
+        var sequentialAll = classifier.predict(inputs[0], API_KEY, PREDICTION_COUNT_INFINITY);
+
+        ReflectionTestUtils.setField(classifier, "parallelScanThreads", 3);
+        ReflectionTestUtils.setField(classifier, "parallelScanMinSize", 10);
+        ReflectionTestUtils.invokeMethod(classifier, "postConstruct");
+        try {
+            for (int i = 0; i < inputs.length; i++) {
+                assertThat(classifier.predict(inputs[i], API_KEY, 3)).isEqualTo(sequential.get(i));
+            }
+            assertThat(classifier.predict(inputs[0], API_KEY, PREDICTION_COUNT_INFINITY)).isEqualTo(sequentialAll);
+        } finally {
+            ReflectionTestUtils.invokeMethod(classifier, "preDestroy");
+        }
+    }
+
+    private double[] randomVector() {
+        return random.doubles(DIMENSION).toArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.exadel.frs.core.trainservice.component.classifiers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.exadel.frs.commonservice.sdk.faces.exception.FacesServiceException;
+import com.exadel.frs.commonservice.sdk.faces.feign.FacesFeignClient;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesStatusResponse;
+import feign.FeignException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarityCoefficientsProviderTest {
+
+    @Mock
+    private FacesFeignClient feignClient;
+
+    @InjectMocks
+    private SimilarityCoefficientsProvider provider;
+
+    @Test
+    void testLoadsOnceOnFirstUse() {
+        when(feignClient.getStatus()).thenReturn(status("v1", 1.1, 5.0));
+
+        var first = provider.getCoefficients();
+        var second = provider.getCoefficients();
+
+        assertThat(first).isSameAs(second);
+        assertThat(first.coef0()).isEqualTo(1.1);
+        assertThat(first.coef1()).isEqualTo(5.0);
+        verify(feignClient, times(1)).getStatus();
+    }
+
+    @Test
+    void testRefreshPicksUpNewCalculator() {
+        when(feignClient.getStatus()).thenReturn(status("v1", 1.1, 5.0), status("v2", 1.2, 6.0));
+        provider.getCoefficients();
+
+        provider.refresh();
+
+        assertThat(provider.getCoefficients().calculatorVersion()).isEqualTo("v2");
+        assertThat(provider.getCoefficients().coef0()).isEqualTo(1.2);
+    }
+
+    @Test
+    void testRefreshKeepsLastKnownOnFailure() {
+        when(feignClient.getStatus()).thenReturn(status("v1", 1.1, 5.0)).thenThrow(FeignException.class);
+        var loaded = provider.getCoefficients();
+
+        provider.refresh();
+
+        assertThat(provider.getCoefficients()).isEqualTo(loaded);
+    }
+
+    @Test
+    void testRefreshBeforeFirstUseDoesNothing() {
+        provider.refresh();
+
+        verify(feignClient, never()).getStatus();
+    }
+
+    @Test
+    void testNoStatus() {
+        when(feignClient.getStatus()).thenReturn(new FacesStatusResponse());
+
+        assertThrows(FacesServiceException.class, () -> provider.getCoefficients());
+    }
+
+    private static FacesStatusResponse status(final String calculator, final double coef0, final double coef1) {
+        return new FacesStatusResponse().setCalculatorVersion(calculator)
+                                        .setSimilarityCoefficients(List.of(coef0, coef1));
+    }
+}
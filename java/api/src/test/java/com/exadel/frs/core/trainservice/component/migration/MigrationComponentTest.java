@@ -10,7 +10,6 @@ import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResult;
 import com.exadel.frs.core.trainservice.DbHelper;
 import com.exadel.frs.core.trainservice.EmbeddedPostgreSQLTest;
-import org.apache.commons.lang3.ArrayUtils;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -38,7 +37,7 @@ class MigrationComponentTest extends EmbeddedPostgreSQLTest {
     @Test
     void testRecalculateEmbeddingsWithOutdatedCalculator() {
         var currentCalculator = "super-puper-calculator";
-        var newEmbeddingArray = new Double[]{7.7, 36.6, 42.0};
+        var newEmbeddingArray = new double[]{7.7, 36.6, 42.0};
 
         when(feignClient.getStatus())
                 .thenReturn(new FacesStatusResponse().setCalculatorVersion(currentCalculator));
@@ -62,6 +61,6 @@ class MigrationComponentTest extends EmbeddedPostgreSQLTest {
 
         final Embedding recalculatedEmbedding = embeddingRepository.findById(outdatedEmbedding.getId()).orElseThrow();
         assertThat(recalculatedEmbedding.getCalculator()).isEqualTo(currentCalculator);
-        assertThat(recalculatedEmbedding.getEmbedding()).containsExactly(ArrayUtils.toPrimitive(newEmbeddingArray));
+        assertThat(recalculatedEmbedding.getEmbedding()).containsExactly(newEmbeddingArray);
     }
 }
\ No newline at end of file
@@ -79,14 +79,14 @@ class RecognizeControllerTest extends EmbeddedPostgreSQLTest {
         val mockFile = new MockMultipartFile("file", "test data".getBytes());
         val findFacesResponse = FindFacesResponse.builder()
                 .result(List.of(FindFacesResult.builder()
-                        .embedding(new Double[]{1.0})
+                        .embedding(new double[]{1.0})
                         .box(new FacesBox().setProbability(1D))
                         .build()
                 ))
                 .build();
 
         when(client.findFacesWithCalculator(any(), any(), any(), isNull(), any())).thenReturn(findFacesResponse);
-        when(predictor.predict(any(), any(), anyInt())).thenReturn(List.of(Pair.of(1.0, "")));
+        when(predictor.predictBatch(any(), any(), anyInt())).thenReturn(List.of(List.of(Pair.of(1.0, ""))));
         doNothing().when(validator).validate(mockFile);
 
         mockMvc.perform(
@@ -100,14 +100,14 @@ class RecognizeControllerTest extends EmbeddedPostgreSQLTest {
     void recognizeBase64() throws Exception {
         val findFacesResponse = FindFacesResponse.builder()
                 .result(List.of(FindFacesResult.builder()
-                        .embedding(new Double[]{1.0})
+                        .embedding(new double[]{1.0})
                         .box(new FacesBox().setProbability(1D))
                         .build()
                 ))
                 .build();
 
         when(client.findFacesBase64WithCalculator(any(), any(), any(), isNull(), any())).thenReturn(findFacesResponse);
-        when(predictor.predict(any(), any(), anyInt())).thenReturn(List.of(Pair.of(1.0, "")));
+        when(predictor.predictBatch(any(), any(), anyInt())).thenReturn(List.of(List.of(Pair.of(1.0, ""))));
         doNothing().when(validator).validateBase64(any());
 
         Base64File request = new Base64File();
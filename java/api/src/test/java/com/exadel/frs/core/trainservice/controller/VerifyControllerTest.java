@@ -22,9 +22,12 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.exadel.frs.core.trainservice.system.global.Constants.API_V1;
 import static com.exadel.frs.core.trainservice.system.global.Constants.X_FRS_API_KEY_HEADER;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
@@ -58,13 +61,13 @@ class VerifyControllerTest extends EmbeddedPostgreSQLTest {
     void verifyFaces() throws Exception {
         val findFacesResponse = FindFacesResponse.builder()
                 .result(List.of(FindFacesResult.builder()
-                        .embedding(new Double[]{1.0})
+                        .embedding(new double[]{1.0})
                         .box(new FacesBox().setProbability(1D))
                         .build()
                 ))
                 .build();
 
-        when(client.findFacesWithCalculator(any(), any(), any(), isNull(), any())).thenReturn(findFacesResponse);
+        when(client.findFacesWithCalculatorAsync(any(), any(), any(), isNull(), any())).thenReturn(completedFuture(findFacesResponse));
         when(predictor.verify(any(), any())).thenReturn(new double[]{100d});
 
         val firstFile = new MockMultipartFile("source_image", "test data".getBytes());
@@ -78,7 +81,7 @@ class VerifyControllerTest extends EmbeddedPostgreSQLTest {
         ).andExpect(status().isOk());
 
         verify(validator, times(2)).validate(any());
-        verify(client, times(2)).findFacesWithCalculator(any(), any(), any(), isNull(), any());
+        verify(client, times(2)).findFacesWithCalculatorAsync(any(), any(), any(), isNull(), any());
         verify(predictor).verify(any(), any(double[][].class));
         verifyNoMoreInteractions(validator, client, predictor);
     }
@@ -87,13 +90,13 @@ class VerifyControllerTest extends EmbeddedPostgreSQLTest {
     void verifyFacesBase64() throws Exception {
         val findFacesResponse = FindFacesResponse.builder()
                 .result(List.of(FindFacesResult.builder()
-                        .embedding(new Double[]{1.0})
+                        .embedding(new double[]{1.0})
                         .box(new FacesBox().setProbability(1D))
                         .build()
                 ))
                 .build();
 
-        when(client.findFacesBase64WithCalculator(any(), any(), any(), anyString(), any())).thenReturn(findFacesResponse);
+        when(client.findFacesBase64WithCalculatorAsync(any(), any(), any(), anyString(), any())).thenReturn(completedFuture(findFacesResponse));
         when(predictor.verify(any(), any())).thenReturn(new double[]{100d});
 
         VerifySourceTargetRequest request = new VerifySourceTargetRequest();
@@ -110,9 +113,30 @@ class VerifyControllerTest extends EmbeddedPostgreSQLTest {
         ).andExpect(status().isOk());
 
         verify(validator, times(2)).validateBase64(any());
-        verify(client, times(2)).findFacesBase64WithCalculator(any(), any(), any(), anyString(), any());
+        verify(client, times(2)).findFacesBase64WithCalculatorAsync(any(), any(), any(), anyString(), any());
         verify(predictor).verify(any(), any(double[][].class));
 
         verifyNoMoreInteractions(validator, client, predictor);
     }
+
+    @Test
+    void verifyFacesCancelsTargetWhenSourceHasNoFaces() throws Exception {
+        val targetFuture = new CompletableFuture<FindFacesResponse>();
+        when(client.findFacesWithCalculatorAsync(any(), any(), any(), isNull(), any()))
+                .thenReturn(completedFuture(FindFacesResponse.builder().result(List.of()).build()), targetFuture);
+
+        val firstFile = new MockMultipartFile("source_image", "test data".getBytes());
+        val secondFile = new MockMultipartFile("target_image", "test data".getBytes());
+
+        mockMvc.perform(
+                multipart(API_V1 + "/verification/verify")
+                        .file(firstFile)
+                        .file(secondFile)
+                        .header(X_FRS_API_KEY_HEADER, API_KEY)
+        ).andExpect(status().isBadRequest());
+
+        assertThat(targetFuture).isCancelled();
+        verify(client, times(2)).findFacesWithCalculatorAsync(any(), any(), any(), isNull(), any());
+        verifyNoInteractions(predictor);
+    }
 }
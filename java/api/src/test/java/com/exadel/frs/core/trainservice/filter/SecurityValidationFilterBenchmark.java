@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.core.trainservice.filter;
+
+import static com.exadel.frs.core.trainservice.system.global.Constants.API_V1;
+import static com.exadel.frs.core.trainservice.system.global.Constants.RECOGNIZE;
+import static com.exadel.frs.core.trainservice.system.global.Constants.X_FRS_API_KEY_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import com.exadel.frs.commonservice.entity.Model;
+import com.exadel.frs.commonservice.enums.ModelType;
+import com.exadel.frs.commonservice.handler.ResponseExceptionHandler;
+import com.exadel.frs.commonservice.repository.ModelRepository;
+import com.exadel.frs.core.trainservice.cache.ModelStatisticCacheProvider;
+import com.exadel.frs.core.trainservice.service.ModelService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Optional;
+import javax.servlet.FilterChain;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Measures the time {@link SecurityValidationFilter} adds to a recognition request with a valid, cached api key.
+ * <p>
+ * Not a part of the test suite, run it with {@code mvn test -pl api -Dtest=SecurityValidationFilterBenchmark}.
+ * It only reports the time, wall clock results depend on the machine too much to be asserted.
+ */
+class SecurityValidationFilterBenchmark {
+
+    private static final String API_KEY = "11f4cb4b-ea5a-45d4-8da7-863fea07c40a";
+    private static final int WARM_UP_ITERATIONS = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    @Test
+    void benchmarkValidApiKey() throws Exception {
+        val modelRepository = mock(ModelRepository.class);
+        when(modelRepository.findByApiKeyAndType(API_KEY, ModelType.RECOGNITION)).thenReturn(Optional.of(Model.builder().id(1L).build()));
+
+        val modelService = new ModelService(modelRepository);
+        ReflectionTestUtils.setField(modelService, "cacheMaxSize", 100);
+        ReflectionTestUtils.setField(modelService, "cacheTtlMs", 600_000);
+        ReflectionTestUtils.setField(modelService, "cacheNegativeTtlMs", 600_000);
+        ReflectionTestUtils.invokeMethod(modelService, "postConstruct");
+
+        val filter = new SecurityValidationFilter(
+                modelService,
+                new ResponseExceptionHandler(),
+                new ObjectMapper(),
+                new ModelStatisticCacheProvider()
+        );
+
+        val request = new MockHttpServletRequest("POST", API_V1 + RECOGNIZE);
+        request.addHeader("Content-Type", "multipart/form-data");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("User-Agent", "benchmark");
+        request.addHeader(X_FRS_API_KEY_HEADER, API_KEY);
+        val response = new MockHttpServletResponse();
+        val passed = new int[1];
+        final FilterChain chain = (req, res) -> passed[0]++;
+
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            filter.doFilter(request, response, chain);
+        }
+
+        val start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            filter.doFilter(request, response, chain);
+        }
+        val nanosPerRequest = (double) (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("SecurityValidationFilter: %.0f ns per request%n", nanosPerRequest);
+        assertThat(passed[0]).isEqualTo(WARM_UP_ITERATIONS + ITERATIONS);
+    }
+}
@@ -21,15 +21,14 @@ import static com.exadel.frs.commonservice.enums.ValidationResult.OK;
 import static com.exadel.frs.core.trainservice.system.global.Constants.API_V1;
 import static com.exadel.frs.core.trainservice.system.global.Constants.RECOGNIZE;
 import static com.exadel.frs.core.trainservice.system.global.Constants.X_FRS_API_KEY_HEADER;
-import static java.util.Collections.emptyEnumeration;
-import static java.util.Collections.enumeration;
-import static java.util.Collections.singletonList;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import com.exadel.frs.commonservice.enums.ModelType;
@@ -59,6 +58,7 @@ class SecurityValidationFilterTest {
     private static final String SHORT_API_KEY = "9892f9e2-1844-46f3-a710-72e";
     private static final String VALID_API_KEY = "11f4cb4b-ea5a-45d4-8da7-863fea07c40a";
     private static final String NOT_VALID_API_KEY = "11f4cb4bea5a45d48da7863fea07c40a11111";
+    private static final String NOT_HEX_API_KEY = "11f4cb4b-ea5a-45d4-8da7-863fea07c40z";
 
     @Mock
     private ResponseExceptionHandler exceptionHandler;
@@ -93,8 +93,7 @@ class SecurityValidationFilterTest {
 
     @Test
     void testDoFilterWithShortApiKey() throws IOException, ServletException {
-        when(httpServletRequest.getHeaderNames()).thenReturn(enumeration(singletonList(X_FRS_API_KEY_HEADER)));
-        when(httpServletRequest.getHeaders(X_FRS_API_KEY_HEADER)).thenReturn(enumeration(singletonList(SHORT_API_KEY)));
+        when(httpServletRequest.getHeader(X_FRS_API_KEY_HEADER)).thenReturn(SHORT_API_KEY);
         when(exceptionHandler.handleDefinedExceptions(any())).thenCallRealMethod();
 
         securityValidationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
@@ -108,8 +107,6 @@ class SecurityValidationFilterTest {
 
     @Test
     void testDoFilterWithoutApiKey() throws IOException, ServletException {
-        when(httpServletRequest.getHeaderNames()).thenReturn(emptyEnumeration());
-        when(httpServletRequest.getHeaders(X_FRS_API_KEY_HEADER)).thenReturn(emptyEnumeration());
         when(exceptionHandler.handleMissingRequestHeader(anyString())).thenCallRealMethod();
 
         securityValidationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
@@ -125,8 +122,7 @@ class SecurityValidationFilterTest {
     void testDoFilterWithValidApiKey() throws IOException, ServletException {
         var validationResult = new ModelValidationResult(1L, OK);
 
-        when(httpServletRequest.getHeaderNames()).thenReturn(enumeration(singletonList(X_FRS_API_KEY_HEADER)));
-        when(httpServletRequest.getHeaders(X_FRS_API_KEY_HEADER)).thenReturn(enumeration(singletonList(VALID_API_KEY)));
+        when(httpServletRequest.getHeader(X_FRS_API_KEY_HEADER)).thenReturn(VALID_API_KEY);
         when(modelService.validateModelKey(anyString(), any(ModelType.class))).thenReturn(validationResult);
 
         securityValidationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
@@ -138,8 +134,7 @@ class SecurityValidationFilterTest {
     void testDoFilterWithNonExistentApiKey() throws IOException, ServletException {
         var validationResult = new ModelValidationResult(1L, FORBIDDEN);
 
-        when(httpServletRequest.getHeaderNames()).thenReturn(enumeration(singletonList(X_FRS_API_KEY_HEADER)));
-        when(httpServletRequest.getHeaders(X_FRS_API_KEY_HEADER)).thenReturn(enumeration(singletonList(VALID_API_KEY)));
+        when(httpServletRequest.getHeader(X_FRS_API_KEY_HEADER)).thenReturn(VALID_API_KEY);
         when(modelService.validateModelKey(anyString(), eq(ModelType.RECOGNITION))).thenReturn(validationResult);
         when(exceptionHandler.handleDefinedExceptions(any())).thenCallRealMethod();
 
@@ -157,8 +152,7 @@ class SecurityValidationFilterTest {
 
     @Test
     void testDoFilterWithNotValidApiKey() throws IOException, ServletException {
-        when(httpServletRequest.getHeaderNames()).thenReturn(enumeration(singletonList(X_FRS_API_KEY_HEADER)));
-        when(httpServletRequest.getHeaders(X_FRS_API_KEY_HEADER)).thenReturn(enumeration(singletonList(NOT_VALID_API_KEY)));
+        when(httpServletRequest.getHeader(X_FRS_API_KEY_HEADER)).thenReturn(NOT_VALID_API_KEY);
         when(exceptionHandler.handleDefinedExceptions(any())).thenCallRealMethod();
 
         securityValidationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
@@ -170,4 +164,41 @@ class SecurityValidationFilterTest {
         );
         verify(httpServletResponse).setContentType(MediaType.APPLICATION_JSON_VALUE);
     }
+
+    @Test
+    void testDoFilterWithNotHexApiKey() throws IOException, ServletException {
+        when(httpServletRequest.getHeader(X_FRS_API_KEY_HEADER)).thenReturn(NOT_HEX_API_KEY);
+        when(exceptionHandler.handleDefinedExceptions(any())).thenCallRealMethod();
+
+        securityValidationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
+
+        verify(httpServletResponse).setStatus(
+                exceptionHandler.handleDefinedExceptions(new BadFormatModelKeyException())
+                                .getStatusCode()
+                                .value()
+        );
+        verify(filterChain, never()).doFilter(httpServletRequest, httpServletResponse);
+    }
+
+    @Test
+    void testDoFilterWithPublicPath() throws IOException, ServletException {
+        when(httpServletRequest.getRequestURI()).thenReturn(API_V1 + "/static/logo.png");
+
+        securityValidationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
+
+        verify(filterChain).doFilter(httpServletRequest, httpServletResponse);
+        verifyNoInteractions(modelService);
+    }
+
+    @Test
+    void testDoFilterCountsRecognitionRequests() throws IOException, ServletException {
+        when(httpServletRequest.getRequestURI()).thenReturn(API_V1 + "/recognition/recognize");
+        when(httpServletRequest.getHeader(X_FRS_API_KEY_HEADER)).thenReturn(VALID_API_KEY.toUpperCase());
+        when(modelService.validateModelKey(anyString(), eq(ModelType.RECOGNITION))).thenReturn(new ModelValidationResult(1L, OK));
+
+        securityValidationFilter.doFilter(httpServletRequest, httpServletResponse, filterChain);
+
+        verify(modelStatisticCacheProvider).incrementRequestCount(1L);
+        verify(filterChain).doFilter(httpServletRequest, httpServletResponse);
+    }
 }
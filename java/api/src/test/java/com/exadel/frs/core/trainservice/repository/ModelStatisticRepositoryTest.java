@@ -0,0 +1,46 @@
+package com.exadel.frs.core.trainservice.repository;
+
+import static com.exadel.frs.commonservice.enums.ModelType.DETECTION;
+import static com.exadel.frs.commonservice.enums.ModelType.RECOGNITION;
+import static org.assertj.core.api.Assertions.assertThat;
+import com.exadel.frs.commonservice.repository.ModelStatisticRepository;
+import com.exadel.frs.core.trainservice.DbHelper;
+import com.exadel.frs.core.trainservice.EmbeddedPostgreSQLTest;
+import java.time.LocalDateTime;
+import javax.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+class ModelStatisticRepositoryTest extends EmbeddedPostgreSQLTest {
+
+    @Autowired
+    DbHelper dbHelper;
+
+    @Autowired
+    ModelStatisticRepository modelStatisticRepository;
+
+    @Test
+    @Transactional
+    void testFindMostRequestedApiKeys() {
+        // far in the future, so that statistics of other tests are not counted
+        var since = LocalDateTime.now().plusYears(100);
+
+        var model1 = dbHelper.insertModel();
+        var model2 = dbHelper.insertModel();
+        var model3 = dbHelper.insertModel();
+        var detectionModel = dbHelper.insertModel(DETECTION);
+
+        dbHelper.insertModelStatistic(model1, 10, since.plusDays(1));
+        dbHelper.insertModelStatistic(model1, 10, since.plusDays(2));
+        dbHelper.insertModelStatistic(model2, 30, since.plusDays(1));
+        dbHelper.insertModelStatistic(model3, 5, since.plusDays(1));
+        // too old
+        dbHelper.insertModelStatistic(model3, 100, since.minusDays(1));
+        dbHelper.insertModelStatistic(detectionModel, 100, since.plusDays(1));
+
+        var apiKeys = modelStatisticRepository.findMostRequestedApiKeys(RECOGNITION, since, PageRequest.of(0, 2));
+
+        assertThat(apiKeys).containsExactly(model2.getApiKey(), model1.getApiKey());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.core.trainservice.sdk.config;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.exadel.frs.commonservice.sdk.config.JavaAsyncHttpClient;
+import com.sun.net.httpserver.HttpServer;
+import feign.AsyncFeign;
+import feign.FeignException;
+import feign.Headers;
+import feign.Param;
+import feign.RequestLine;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JavaAsyncHttpClientTest {
+
+    private HttpServer server;
+    private EchoClient client;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    public interface EchoClient {
+
+        @RequestLine("POST /echo?status={status}")
+        @Headers("Content-Type: text/plain")
+        CompletableFuture<String> echo(String body, @Param("status") int status);
+
+        @RequestLine("GET /slow")
+        CompletableFuture<String> slow();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/echo", exchange -> {
+            val status = Integer.parseInt(exchange.getRequestURI().getQuery().substring("status=".length()));
+            val body = new String(exchange.getRequestBody().readAllBytes(), UTF_8);
+            val response = (exchange.getRequestHeaders().getFirst("Content-Type") + ":" + body).getBytes(UTF_8);
+            exchange.sendResponseHeaders(status, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            val response = "slow".getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        client = AsyncFeign.<Object>asyncBuilder()
+                           .client(new JavaAsyncHttpClient(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()))
+                           .target(EchoClient.class, "http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void executeSendsRequestAndReadsResponse() throws Exception {
+        assertThat(client.echo("face", 200).get(5, TimeUnit.SECONDS)).isEqualTo("text/plain:face");
+    }
+
+    @Test
+    void executeFailsFutureWithFeignException() {
+        assertThatThrownBy(() -> client.echo("no face", 400).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(FeignException.BadRequest.class);
+    }
+
+    @Test
+    void executeDoesNotBlockCallingThread() throws Exception {
+        val slow = client.slow();
+
+        assertThat(slow).isNotDone();
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.core.trainservice.sdk.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import com.exadel.frs.commonservice.sdk.config.CoreEndpointPool;
+import com.exadel.frs.commonservice.sdk.config.LoadBalancedClient;
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.val;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+class LoadBalancedClientTest {
+
+    private static final String CORE_1 = "http://core-1:3000";
+    private static final String CORE_2 = "http://core-2:3000";
+    private static final int FAILURE_THRESHOLD = 2;
+
+    private final HttpClient httpClient = mock(HttpClient.class);
+    private final CoreEndpointPool pool = new CoreEndpointPool(List.of(CORE_1, CORE_2), httpClient, FAILURE_THRESHOLD, 60_000, 0, 1000);
+    private final List<String> sentUrls = new ArrayList<>();
+
+    @Test
+    void executeSendsRequestToChosenEndpoint() throws IOException {
+        val client = new LoadBalancedClient(respondingWith(200), pool, CORE_1);
+
+        client.execute(request(CORE_1 + "/find_faces?limit=1"), new Request.Options());
+        client.execute(request(CORE_1 + "/find_faces?limit=1"), new Request.Options());
+
+        assertThat(sentUrls).containsExactlyInAnyOrder(CORE_1 + "/find_faces?limit=1", CORE_2 + "/find_faces?limit=1");
+    }
+
+    @Test
+    void executeSendsRequestToLeastLoadedEndpoint() throws IOException {
+        val nested = new ArrayList<String>();
+        final Client delegate = (request, options) -> {
+            sentUrls.add(request.url());
+            if (nested.isEmpty()) {
+                // the endpoint of this request is busy until it returns
+                nested.add(pool.choose().getUrl());
+                nested.add(pool.choose().getUrl());
+            }
+
+            return response(request, 200);
+        };
+
+        new LoadBalancedClient(delegate, pool, CORE_1).execute(request(CORE_1 + "/status"), new Request.Options());
+
+        val busy = sentUrls.get(0).replace("/status", "");
+        assertThat(nested).hasSize(2).doesNotContain(busy);
+    }
+
+    @Test
+    void executeEjectsFailingEndpoint() {
+        final Client delegate = (request, options) -> {
+            sentUrls.add(request.url());
+            if (request.url().startsWith(CORE_2)) {
+                throw new ConnectException("Connection refused");
+            }
+
+            return response(request, 200);
+        };
+        val client = new LoadBalancedClient(delegate, pool, CORE_1);
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                client.execute(request(CORE_1 + "/status"), new Request.Options());
+            } catch (IOException e) {
+                // expected from core-2
+            }
+        }
+
+        assertThat(sentUrls.stream().filter(url -> url.startsWith(CORE_2))).hasSize(FAILURE_THRESHOLD);
+        assertThat(sentUrls.stream().filter(url -> url.startsWith(CORE_1))).hasSize(10 - FAILURE_THRESHOLD);
+    }
+
+    @Test
+    void executeCountsUnavailableResponsesAsFailures() throws IOException {
+        val client = new LoadBalancedClient(
+                (request, options) -> response(request, request.url().startsWith(CORE_2) ? 503 : 200),
+                pool,
+                CORE_1
+        );
+
+        for (int i = 0; i < 4; i++) {
+            client.execute(request(CORE_1 + "/status"), new Request.Options());
+        }
+
+        assertThat(pool.choose().getUrl()).isEqualTo(CORE_1);
+        assertThat(pool.choose().getUrl()).isEqualTo(CORE_1);
+    }
+
+    @Test
+    void chooseReturnsEndpointWhenAllAreEjected() {
+        val client = new LoadBalancedClient((request, options) -> {
+            throw new ConnectException("Connection refused");
+        }, pool, CORE_1);
+
+        for (int i = 0; i < 2 * FAILURE_THRESHOLD; i++) {
+            assertThatThrownBy(() -> client.execute(request(CORE_1 + "/status"), new Request.Options()))
+                    .isInstanceOf(ConnectException.class);
+        }
+
+        assertThat(pool.choose()).isNotNull();
+    }
+
+    @Test
+    void probeEjectsAndBringsBackEndpoints() throws IOException {
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> {
+            val uri = invocation.<HttpUriRequest>getArgument(0).getURI().toString();
+            if (uri.startsWith(CORE_2)) {
+                throw new ConnectException("Connection refused");
+            }
+
+            return status(200);
+        });
+        pool.probe();
+
+        assertThat(pool.choose().getUrl()).isEqualTo(CORE_1);
+        assertThat(pool.choose().getUrl()).isEqualTo(CORE_1);
+
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(invocation -> status(200));
+        pool.probe();
+
+        assertThat(List.of(pool.choose().getUrl(), pool.choose().getUrl())).containsExactlyInAnyOrder(CORE_1, CORE_2);
+    }
+
+    private Client respondingWith(final int status) {
+        return (request, options) -> {
+            sentUrls.add(request.url());
+            return response(request, status);
+        };
+    }
+
+    private static Request request(final String url) {
+        return Request.create(Request.HttpMethod.GET, url, Map.of(), null, null, new RequestTemplate());
+    }
+
+    private static Response response(final Request request, final int status) {
+        return Response.builder().status(status).headers(Map.of()).request(request).build();
+    }
+
+    private static HttpResponse status(final int status) {
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+    }
+}
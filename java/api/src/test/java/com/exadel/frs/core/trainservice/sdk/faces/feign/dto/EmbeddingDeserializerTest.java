@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.core.trainservice.sdk.faces.feign.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+class EmbeddingDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsListOfNumbers() throws Exception {
+        val result = objectMapper.readValue("{\"embedding\": [0.5, -1.25, 3]}", FindFacesResult.class);
+
+        assertThat(result.getEmbedding()).containsExactly(0.5, -1.25, 3.0);
+    }
+
+    @Test
+    void readsLongListOfNumbers() throws Exception {
+        val json = new StringBuilder("{\"embedding\": [");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ",").append(i);
+        }
+        json.append("]}");
+
+        val result = objectMapper.readValue(json.toString(), FindFacesResult.class);
+
+        assertThat(result.getEmbedding()).hasSize(1000);
+        assertThat(result.getEmbedding()[999]).isEqualTo(999.0);
+    }
+
+    @Test
+    void readsBase64Float32() throws Exception {
+        val bytes = ByteBuffer.allocate(3 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putFloat(0.5f).putFloat(-1.25f).putFloat(0.1f);
+        val json = "{\"embedding\": \"" + Base64.getEncoder().encodeToString(bytes.array()) + "\"}";
+
+        val result = objectMapper.readValue(json, FindFacesResult.class);
+
+        assertThat(result.getEmbedding()).containsExactly(0.5, -1.25, (double) 0.1f);
+    }
+
+    @Test
+    void readsNull() throws Exception {
+        val result = objectMapper.readValue("{\"embedding\": null}", FindFacesResult.class);
+
+        assertThat(result.getEmbedding()).isNull();
+    }
+
+    @Test
+    void rejectsTruncatedBase64Float32() {
+        val json = "{\"embedding\": \"" + Base64.getEncoder().encodeToString(new byte[]{1, 2, 3}) + "\"}";
+
+        assertThatThrownBy(() -> objectMapper.readValue(json, FindFacesResult.class)).isInstanceOf(InvalidFormatException.class);
+    }
+}
@@ -17,17 +17,23 @@ package com.exadel.frs.core.trainservice.sdk.faces.service;
 
 import static com.exadel.frs.core.trainservice.system.global.Constants.CALCULATOR_PLUGIN;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import com.exadel.frs.commonservice.sdk.faces.exception.FacesServiceException;
 import com.exadel.frs.commonservice.sdk.faces.exception.NoFacesFoundException;
+import com.exadel.frs.commonservice.sdk.faces.feign.FacesAsyncFeignClient;
 import com.exadel.frs.commonservice.sdk.faces.feign.FacesFeignClient;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesStatusResponse;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
 import com.exadel.frs.commonservice.sdk.faces.service.FacesRestApiClient;
 import feign.FeignException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -45,6 +51,8 @@ class FacesRestApiClientTest {
 
     @Mock
     private FacesFeignClient feignClient;
+    @Mock
+    private FacesAsyncFeignClient asyncFeignClient;
     @InjectMocks
     private FacesRestApiClient restApiClient;
 
@@ -131,6 +139,69 @@ class FacesRestApiClientTest {
         assertThrows(thrownClass, action);
     }
 
+    @ParameterizedTest
+    @MethodSource("verifyFindFacesWithCalculator")
+    void testFindFacesWithCalculatorAsync(String inPlugins, String outPlugins) throws Exception {
+        // given
+        FindFacesResponse expected = mock(FindFacesResponse.class);
+        MultipartFile photo = mock(MultipartFile.class);
+        Integer faceLimit = 1;
+        Double thresholdC = 1.0;
+        when(asyncFeignClient.findFaces(photo, faceLimit, thresholdC, outPlugins, true)).thenReturn(CompletableFuture.completedFuture(expected));
+
+        // when
+        FindFacesResponse actual = restApiClient.findFacesWithCalculatorAsync(photo, faceLimit, thresholdC, inPlugins, true).get();
+
+        // then
+        assertThat(actual, is(expected));
+    }
+
+    @ParameterizedTest
+    @MethodSource("verifyFindFacesExceptions")
+    void testFindFacesWithCalculatorAsyncWithException(Class<? extends Exception> caughtClass, Class<? extends Exception> thrownClass) {
+        // given
+        MultipartFile photo = mock(MultipartFile.class);
+        Integer faceLimit = 1;
+        Double thresholdC = 1.0;
+        when(asyncFeignClient.findFaces(photo, faceLimit, thresholdC, CALCULATOR_PLUGIN, true))
+                .thenReturn(CompletableFuture.failedFuture(mock(caughtClass)));
+
+        // when
+        Executable action = () -> restApiClient.findFacesWithCalculatorAsync(photo, faceLimit, thresholdC, null, true).get();
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class, action);
+        assertThat(exception.getCause(), instanceOf(thrownClass));
+    }
+
+    @ParameterizedTest
+    @MethodSource("verifyFindFacesExceptions")
+    void testFindFacesBase64WithCalculatorAsyncWithImmediateException(Class<? extends Exception> caughtClass, Class<? extends Exception> thrownClass) {
+        // given
+        when(asyncFeignClient.findFacesBase64(any(), eq(1), eq(1.0), eq(CALCULATOR_PLUGIN), eq(true))).thenThrow(caughtClass);
+
+        // when
+        Executable action = () -> restApiClient.findFacesBase64WithCalculatorAsync("image", 1, 1.0, null, true).get();
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class, action);
+        assertThat(exception.getCause(), instanceOf(thrownClass));
+    }
+
+    @Test
+    void testFindFacesWithCalculatorAsyncCancelsCall() {
+        // given
+        MultipartFile photo = mock(MultipartFile.class);
+        CompletableFuture<FindFacesResponse> call = new CompletableFuture<>();
+        when(asyncFeignClient.findFaces(photo, 1, 1.0, CALCULATOR_PLUGIN, true)).thenReturn(call);
+
+        // when
+        restApiClient.findFacesWithCalculatorAsync(photo, 1, 1.0, null, true).cancel(true);
+
+        // then
+        assertThat(call.isCancelled(), is(true));
+    }
+
     @Test
     void testGetStatusWithException() {
         // given
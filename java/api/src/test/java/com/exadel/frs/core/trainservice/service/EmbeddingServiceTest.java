@@ -11,6 +11,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -28,6 +30,30 @@ class EmbeddingServiceTest extends EmbeddedPostgreSQLTest {
     @Autowired
     EmbeddingService embeddingService;
 
+    @Test
+    void testCollectionVersionIsIncrementedOncePerTransaction() {
+        final Model model = dbHelper.insertModel();
+        final var apiKey = model.getApiKey();
+        assertThat(embeddingService.getCollectionVersion(apiKey), is(0L));
+
+        // a subject without embeddings changes nothing
+        final Subject subject = dbHelper.insertSubject(model, "subject");
+        assertThat(embeddingService.getCollectionVersion(apiKey), is(0L));
+
+        dbHelper.insertEmbeddingNoImg(subject);
+        dbHelper.insertEmbeddingNoImg(subject);
+        assertThat(embeddingService.getCollectionVersion(apiKey), is(2L));
+
+        subjectDao.updateSubjectName(apiKey, "subject", "renamed");
+        assertThat(embeddingService.getCollectionVersion(apiKey), is(3L));
+
+        // embeddings and the subject are deleted in one transaction
+        subjectDao.deleteSubjectByName(apiKey, "renamed");
+        assertThat(embeddingService.getCollectionVersion(apiKey), is(4L));
+
+        assertThat(embeddingService.getCollectionVersions(List.of(apiKey, "unknown")), is(Map.of(apiKey, 4L)));
+    }
+
     @Test
     void testListEmbeddings() {
         final Model model = dbHelper.insertModel();
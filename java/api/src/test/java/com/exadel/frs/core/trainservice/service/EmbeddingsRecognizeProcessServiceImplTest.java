@@ -72,7 +72,7 @@ class EmbeddingsRecognizeProcessServiceImplTest extends EmbeddedPostgreSQLTest {
                                             .additionalParams(Collections.singletonMap(PREDICTION_COUNT, 1))
                                             .build();
 
-        when(predictor.predict(any(), any(), anyInt())).thenReturn(List.of(Pair.of(1.0, "subject")));
+        when(predictor.predictBatch(any(), any(), anyInt())).thenReturn(List.of(List.of(Pair.of(1.0, "subject"))));
         assertThat(embeddingRepository.findAll()).containsOnly(embedding);
 
         var results = recognizeProcessService.processEmbeddings(params).getResult();
@@ -100,7 +100,7 @@ class EmbeddingsRecognizeProcessServiceImplTest extends EmbeddedPostgreSQLTest {
                                             .additionalParams(Collections.singletonMap(PREDICTION_COUNT, 1))
                                             .build();
 
-        when(predictor.predict(any(), any(), anyInt())).thenReturn(List.of(Pair.of(0.0, "subject")));
+        when(predictor.predictBatch(any(), any(), anyInt())).thenReturn(List.of(List.of(Pair.of(0.0, "subject"))));
         assertThat(embeddingRepository.findAll()).containsOnly(embedding);
 
         var results = recognizeProcessService.processEmbeddings(params).getResult();
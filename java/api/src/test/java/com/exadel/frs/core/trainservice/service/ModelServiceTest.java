@@ -32,6 +32,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
 
 class ModelServiceTest {
 
@@ -47,6 +48,10 @@ class ModelServiceTest {
     @BeforeEach
     void setUp() {
         initMocks(this);
+        ReflectionTestUtils.setField(modelService, "cacheMaxSize", 100);
+        ReflectionTestUtils.setField(modelService, "cacheTtlMs", 60000);
+        ReflectionTestUtils.setField(modelService, "cacheNegativeTtlMs", 60000);
+        ReflectionTestUtils.invokeMethod(modelService, "postConstruct");
     }
 
     @Test
@@ -76,4 +81,48 @@ class ModelServiceTest {
         verify(modelRepository).findByApiKeyAndType(MODEL_KEY, MODEL_TYPE);
         verifyNoMoreInteractions(modelRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    void validateModelKeyCachesValidationResults() {
+        val model = Model.builder().id(1L).build();
+
+        when(modelRepository.findByApiKeyAndType(MODEL_KEY, MODEL_TYPE)).thenReturn(Optional.of(model));
+        when(modelRepository.findByApiKeyAndType("unknown", MODEL_TYPE)).thenReturn(Optional.empty());
+
+        modelService.validateModelKey(MODEL_KEY, MODEL_TYPE);
+        modelService.validateModelKey("unknown", MODEL_TYPE);
+        val valid = modelService.validateModelKey(MODEL_KEY, MODEL_TYPE);
+        val unknown = modelService.validateModelKey("unknown", MODEL_TYPE);
+
+        assertThat(valid.getResult()).isEqualTo(OK);
+        assertThat(valid.getModelId()).isEqualTo(1L);
+        assertThat(unknown.getResult()).isEqualTo(FORBIDDEN);
+
+        verify(modelRepository).findByApiKeyAndType(MODEL_KEY, MODEL_TYPE);
+        verify(modelRepository).findByApiKeyAndType("unknown", MODEL_TYPE);
+        verifyNoMoreInteractions(modelRepository);
+    }
+
+    @Test
+    void validateModelKeyCachesKeysPerModelType() {
+        when(modelRepository.findByApiKeyAndType(MODEL_KEY, MODEL_TYPE)).thenReturn(Optional.of(Model.builder().id(1L).build()));
+        when(modelRepository.findByApiKeyAndType(MODEL_KEY, ModelType.DETECTION)).thenReturn(Optional.empty());
+
+        assertThat(modelService.validateModelKey(MODEL_KEY, MODEL_TYPE).getResult()).isEqualTo(OK);
+        assertThat(modelService.validateModelKey(MODEL_KEY, ModelType.DETECTION).getResult()).isEqualTo(FORBIDDEN);
+    }
+
+    @Test
+    void invalidateModelKeyValidatesKeyAgain() {
+        when(modelRepository.findByApiKeyAndType(MODEL_KEY, MODEL_TYPE))
+                .thenReturn(Optional.of(Model.builder().id(1L).build()))
+                .thenReturn(Optional.empty());
+
+        modelService.validateModelKey(MODEL_KEY, MODEL_TYPE);
+        modelService.invalidateModelKey(MODEL_KEY);
+        val actual = modelService.validateModelKey(MODEL_KEY, MODEL_TYPE);
+
+        assertThat(actual.getResult()).isEqualTo(FORBIDDEN);
+        verify(modelRepository, times(2)).findByApiKeyAndType(MODEL_KEY, MODEL_TYPE);
+    }
+}
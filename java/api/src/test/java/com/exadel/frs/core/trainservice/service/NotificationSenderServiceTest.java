@@ -0,0 +1,92 @@
+package com.exadel.frs.core.trainservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.exadel.frs.core.trainservice.dto.CacheActionDto;
+import com.exadel.frs.core.trainservice.dto.CacheDeltaDto;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class NotificationSenderServiceTest {
+
+    private static final String API_KEY = "model_key";
+    private static final String SERVER_UUID = "server";
+
+    @Test
+    void coalesceMergesChanges() {
+        var added = UUID.randomUUID();
+        var removed = UUID.randomUUID();
+
+        var coalesced = NotificationSenderService.coalesce(
+                NotificationSenderService.coalesce(
+                        update(CacheDeltaDto.renamedSubject("A", "B")),
+                        update(CacheDeltaDto.addedEmbedding(added))
+                ),
+                update(CacheDeltaDto.removedEmbedding(removed))
+        );
+
+        assertThat(coalesced.getCacheAction()).isEqualTo("UPDATE");
+        assertThat(coalesced.getDelta().getRenamedSubjectNames()).isEqualTo(Map.of("A", "B"));
+        assertThat(coalesced.getDelta().getAddedEmbeddingIds()).containsExactly(added);
+        assertThat(coalesced.getDelta().getRemovedEmbeddingIds()).containsExactly(removed);
+    }
+
+    @Test
+    void coalesceExtendsVersionRangeOnlyByFollowingVersions() {
+        var coalesced = NotificationSenderService.coalesce(
+                NotificationSenderService.coalesce(
+                        update(versioned(CacheDeltaDto.addedEmbedding(UUID.randomUUID()), 5L)),
+                        update(versioned(CacheDeltaDto.addedEmbedding(UUID.randomUUID()), 6L))
+                ),
+                // version 7 was made by another node
+                update(versioned(CacheDeltaDto.addedEmbedding(UUID.randomUUID()), 8L))
+        );
+
+        assertThat(coalesced.getDelta().getAddedEmbeddingIds()).hasSize(3);
+        assertThat(coalesced.getDelta().getFromVersion()).isEqualTo(5L);
+        assertThat(coalesced.getDelta().getToVersion()).isEqualTo(6L);
+    }
+
+    @Test
+    void coalesceFallsBackToReloadOnRenameAfterRemoval() {
+        var coalesced = NotificationSenderService.coalesce(
+                update(CacheDeltaDto.removedSubject("B")),
+                update(CacheDeltaDto.renamedSubject("A", "B"))
+        );
+
+        assertThat(coalesced.getCacheAction()).isEqualTo("UPDATE");
+        assertThat(coalesced.getDelta()).isNull();
+    }
+
+    @Test
+    void coalesceFallsBackToReloadAfterReload() {
+        var coalesced = NotificationSenderService.coalesce(
+                new CacheActionDto("UPDATE", API_KEY, SERVER_UUID),
+                update(CacheDeltaDto.addedEmbedding(UUID.randomUUID()))
+        );
+
+        assertThat(coalesced.getCacheAction()).isEqualTo("UPDATE");
+        assertThat(coalesced.getDelta()).isNull();
+    }
+
+    @Test
+    void coalesceKeepsDelete() {
+        var delete = new CacheActionDto("DELETE", API_KEY, SERVER_UUID);
+
+        assertThat(NotificationSenderService.coalesce(update(CacheDeltaDto.removedSubject("A")), delete).getCacheAction())
+                .isEqualTo("DELETE");
+        assertThat(NotificationSenderService.coalesce(delete, update(CacheDeltaDto.removedSubject("A"))).getCacheAction())
+                .isEqualTo("DELETE");
+        assertThat(NotificationSenderService.coalesce(delete, new CacheActionDto("UPDATE", API_KEY, SERVER_UUID)).getCacheAction())
+                .isEqualTo("UPDATE");
+    }
+
+    private static CacheDeltaDto versioned(final CacheDeltaDto delta, final long version) {
+        delta.setVersion(version);
+        return delta;
+    }
+
+    private static CacheActionDto update(final CacheDeltaDto delta) {
+        return new CacheActionDto("UPDATE", API_KEY, SERVER_UUID, null, delta);
+    }
+}
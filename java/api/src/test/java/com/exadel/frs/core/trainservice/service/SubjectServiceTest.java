@@ -116,7 +116,7 @@ class SubjectServiceTest {
         // verify deleted from DB
         verify(subjectDao).removeAllSubjectEmbeddings(API_KEY, subjectName);
         // verify cache
-        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any());
+        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any(), any());
     }
 
     @Test
@@ -127,7 +127,7 @@ class SubjectServiceTest {
         // verify deleted from DB
         verify(subjectDao).deleteSubjectByName(API_KEY, subjectName);
         // verify cache
-        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any());
+        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any(), any());
     }
 
     @Test
@@ -141,7 +141,7 @@ class SubjectServiceTest {
         // verify deleted from DB
         verify(subjectDao).removeSubjectEmbedding(API_KEY, embeddingId);
         // verify cache update attempt
-        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any());
+        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any(), any());
     }
 
     static Stream<Arguments> subjectNamePairsFailed() {
@@ -176,7 +176,7 @@ class SubjectServiceTest {
         assertThat(updated).isTrue();
 
         // verify cache update attempt
-        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any());
+        verify(embeddingCacheProvider).ifPresent(eq(API_KEY), any(), any());
     }
 
     @Test
@@ -333,7 +333,7 @@ class SubjectServiceTest {
                                     ExecutionTimeDto executionTimeDto = new ExecutionTimeDto();
                                     executionTimeDto.setCalculator(111.1);
 
-                                    return FindFacesResult.builder().embedding(new Double[]{1.1, 2.2}).box(facesBox).executionTime(executionTimeDto).build();
+                                    return FindFacesResult.builder().embedding(new double[]{1.1, 2.2}).box(facesBox).executionTime(executionTimeDto).build();
                                 })
                                 .collect(Collectors.toList())
                 )
@@ -0,0 +1,78 @@
+package com.exadel.frs.core.trainservice.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class TopKTest {
+
+    @Test
+    void testEmpty() {
+        var topK = new TopK(3);
+
+        assertThat(topK.sortedIndexes()).isEmpty();
+    }
+
+    @Test
+    void testZeroCount() {
+        var topK = new TopK(0);
+        topK.offer(0, 1.0);
+
+        assertThat(topK.size()).isZero();
+        assertThat(topK.sortedIndexes()).isEmpty();
+    }
+
+    @Test
+    void testKeepsHighestScores() {
+        var random = new Random(11);
+        var scores = random.doubles(1000).toArray();
+        var topK = new TopK(10);
+        for (int i = 0; i < scores.length; i++) {
+            topK.offer(i, scores[i]);
+        }
+
+        var expected = IntStream.range(0, scores.length)
+                                .boxed()
+                                .sorted(Comparator.comparingDouble(i -> -scores[i]))
+                                .limit(10)
+                                .mapToInt(i -> i)
+                                .toArray();
+
+        assertThat(topK.sortedIndexes()).containsExactly(expected);
+        assertThat(topK.size()).isZero();
+    }
+
+    @Test
+    void testLowerIndexWinsOnEqualScores() {
+        var topK = new TopK(2);
+        topK.offer(0, 0.5);
+        topK.offer(1, 0.9);
+        topK.offer(2, 0.5);
+        topK.offer(3, 0.9);
+
+        assertThat(topK.sortedIndexes()).containsExactly(1, 3);
+    }
+
+    @Test
+    void testLessOffersThanCount() {
+        var topK = new TopK(5);
+        topK.offer(7, 0.1);
+        topK.offer(3, 0.3);
+
+        assertThat(topK.sortedIndexes()).containsExactly(3, 7);
+    }
+
+    @Test
+    void testSortedScores() {
+        var topK = new TopK(2);
+        topK.offer(4, 0.2);
+        topK.offer(5, 0.7);
+        topK.offer(6, 0.4);
+        var scores = new double[topK.size()];
+
+        assertThat(topK.sortedIndexes(scores)).containsExactly(5, 6);
+        assertThat(scores).containsExactly(0.7, 0.4);
+    }
+}
@@ -34,7 +34,7 @@ public class FindFacesResultDto {
     private FacesAgeDto age;
     private FacesGenderDto gender;
     private FacesPoseDto pose;
-    private Double[] embedding;
+    private double[] embedding;
     private FacesBox box;
     @JsonProperty(value = "execution_time")
     private ExecutionTimeDto executionTime;
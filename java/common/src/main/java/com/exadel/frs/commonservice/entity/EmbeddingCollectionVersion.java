@@ -0,0 +1,26 @@
+package com.exadel.frs.commonservice.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.Data;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Version of embeddings of a model. It's incremented by database triggers once per transaction which changes
+ * embeddings or subjects of the model, so it's never written by the application.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "embedding_collection_version", schema = "public")
+public class EmbeddingCollectionVersion {
+
+    @Id
+    @Column(name = "api_key")
+    private String apiKey;
+
+    @Column(name = "version")
+    private long version;
+}
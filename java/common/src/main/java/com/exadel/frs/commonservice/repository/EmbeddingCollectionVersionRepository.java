@@ -0,0 +1,8 @@
+package com.exadel.frs.commonservice.repository;
+
+import com.exadel.frs.commonservice.entity.EmbeddingCollectionVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EmbeddingCollectionVersionRepository extends JpaRepository<EmbeddingCollectionVersion, String> {
+
+}
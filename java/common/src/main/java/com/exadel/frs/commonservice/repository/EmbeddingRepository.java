@@ -4,6 +4,7 @@ import com.exadel.frs.commonservice.entity.Embedding;
 import com.exadel.frs.commonservice.projection.EmbeddingProjection;
 import com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection;
 import com.exadel.frs.commonservice.entity.Subject;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Stream;
@@ -30,6 +31,21 @@ public interface EmbeddingRepository extends JpaRepository<Embedding, UUID> {
             """)
     Stream<EnhancedEmbeddingProjection> findBySubjectApiKey(@Param("apiKey") String apiKey);
 
+    @Query("""
+            select
+                new com.exadel.frs.commonservice.projection.EnhancedEmbeddingProjection(e.id, e.embedding, s.subjectName)
+            from
+                Embedding e
+            left join
+                e.subject s
+            where
+                s.apiKey = :apiKey
+            and
+                e.id in :ids
+            """)
+    List<EnhancedEmbeddingProjection> findBySubjectApiKeyAndIdIn(@Param("apiKey") String apiKey,
+                                                                 @Param("ids") Collection<UUID> ids);
+
     @EntityGraph("embedding-with-subject")
     List<Embedding> findBySubjectId(UUID subjectId);
 
@@ -79,6 +95,9 @@ public interface EmbeddingRepository extends JpaRepository<Embedding, UUID> {
     @Query("select distinct(e.calculator) from Embedding e")
     List<String> getUniqueCalculators();
 
+    @Query("select distinct(e.calculator) from Embedding e where e.subject.apiKey = :apiKey")
+    List<String> getUniqueCalculators(@Param("apiKey") String apiKey);
+
     @Query("""
             select
                 count(e)
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.commonservice.sdk.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Endpoints of the core service (compreface-core) requests are balanced between, see {@link LoadBalancedClient}.
+ * <p>
+ * A request goes to the healthy endpoint with the least outstanding requests, so a slow node gets less of them.
+ * An endpoint is ejected for {@code ejectionTimeMs} after {@code failureThreshold} consecutive failures or a failed
+ * {@code /status} probe, and comes back after the ejection time or a successful probe. If every endpoint is ejected,
+ * requests still go to the least loaded one.
+ */
+@Slf4j
+public class CoreEndpointPool implements MeterBinder, AutoCloseable {
+
+    private static final String STATUS_PATH = "/status";
+
+    @Getter
+    private final List<Endpoint> endpoints;
+    private final HttpClient httpClient;
+    private final int failureThreshold;
+    private final long ejectionTimeMs;
+    private final int probeTimeoutMs;
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    private final ScheduledExecutorService probeExecutor;
+
+    /**
+     * @param urls            base urls of the endpoints
+     * @param probeIntervalMs interval of {@code /status} probes, probes are disabled if it isn't positive or there is
+     *                        only one endpoint
+     */
+    public CoreEndpointPool(
+            final List<String> urls,
+            final HttpClient httpClient,
+            final int failureThreshold,
+            final long ejectionTimeMs,
+            final long probeIntervalMs,
+            final int probeTimeoutMs
+    ) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("No core service urls");
+        }
+
+        this.endpoints = urls.stream().map(Endpoint::new).toList();
+        this.httpClient = httpClient;
+        this.failureThreshold = failureThreshold;
+        this.ejectionTimeMs = ejectionTimeMs;
+        this.probeTimeoutMs = probeTimeoutMs;
+
+        val threadFactory = new CustomizableThreadFactory("core-probe-");
+        threadFactory.setDaemon(true);
+        this.probeExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+        if (probeIntervalMs > 0 && endpoints.size() > 1) {
+            probeExecutor.scheduleWithFixedDelay(this::probe, probeIntervalMs, probeIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return healthy endpoint with the least outstanding requests, or the least loaded one if none is healthy
+     */
+    public Endpoint choose() {
+        val now = System.nanoTime();
+        // equally loaded endpoints take turns
+        val start = Math.floorMod(nextStart.getAndIncrement(), endpoints.size());
+
+        Endpoint best = null;
+        var bestHealthy = false;
+        for (int i = 0; i < endpoints.size(); i++) {
+            val endpoint = endpoints.get((start + i) % endpoints.size());
+            val healthy = endpoint.isHealthy(now);
+            if (best == null
+                    || healthy && !bestHealthy
+                    || healthy == bestHealthy && endpoint.getOutstanding() < best.getOutstanding()) {
+                best = endpoint;
+                bestHealthy = healthy;
+            }
+        }
+
+        return best;
+    }
+
+    public void success(final Endpoint endpoint) {
+        endpoint.consecutiveFailures.set(0);
+    }
+
+    public void failure(final Endpoint endpoint, final String reason) {
+        if (endpoint.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            eject(endpoint, reason);
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        for (val endpoint : endpoints) {
+            Gauge.builder("faces.endpoint.outstanding", endpoint, Endpoint::getOutstanding)
+                 .description("Requests to the core service endpoint waiting for a response")
+                 .tag("endpoint", endpoint.getUrl())
+                 .register(registry);
+            Gauge.builder("faces.endpoint.healthy", endpoint, e -> e.isHealthy(System.nanoTime()) ? 1 : 0)
+                 .description("Whether the core service endpoint receives requests")
+                 .tag("endpoint", endpoint.getUrl())
+                 .register(registry);
+        }
+    }
+
+    @Override
+    public void close() {
+        probeExecutor.shutdownNow();
+    }
+
+    /**
+     * Probes {@code /status} of every endpoint, ejecting the failed ones and bringing back the healthy ones.
+     */
+    public void probe() {
+        for (val endpoint : endpoints) {
+            val request = new HttpGet(endpoint.getUrl() + STATUS_PATH);
+            request.setConfig(RequestConfig.custom()
+                                           .setConnectTimeout(probeTimeoutMs)
+                                           .setSocketTimeout(probeTimeoutMs)
+                                           .build());
+            try {
+                val response = httpClient.execute(request);
+                EntityUtils.consumeQuietly(response.getEntity());
+                val status = response.getStatusLine().getStatusCode();
+                if (status == 200) {
+                    if (!endpoint.isHealthy(System.nanoTime())) {
+                        log.info("Core service endpoint {} is back", endpoint.getUrl());
+                    }
+                    endpoint.consecutiveFailures.set(0);
+                    endpoint.ejectedUntil = 0;
+                } else {
+                    eject(endpoint, "status " + status);
+                }
+            } catch (IOException e) {
+                eject(endpoint, e.getMessage());
+            } catch (RuntimeException e) {
+                // the probe thread must survive anything
+                log.error("Couldn't probe core service endpoint {}", endpoint.getUrl(), e);
+            }
+        }
+    }
+
+    private void eject(final Endpoint endpoint, final String reason) {
+        val wasHealthy = endpoint.isHealthy(System.nanoTime());
+        endpoint.ejectedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ejectionTimeMs);
+        if (wasHealthy) {
+            log.warn("Core service endpoint {} is ejected for {} ms: {}", endpoint.getUrl(), ejectionTimeMs, reason);
+        }
+    }
+
+    @RequiredArgsConstructor
+    public static final class Endpoint {
+
+        @Getter
+        private final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long ejectedUntil;
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        void begin() {
+            outstanding.incrementAndGet();
+        }
+
+        void end() {
+            outstanding.decrementAndGet();
+        }
+
+        boolean isHealthy(final long now) {
+            return ejectedUntil == 0 || ejectedUntil - now <= 0;
+        }
+    }
+}
@@ -18,20 +18,37 @@ package com.exadel.frs.commonservice.sdk.config;
 
 import static com.exadel.frs.commonservice.system.global.EnvironmentProperties.ServerType.PYTHON;
 import static com.zaxxer.hikari.util.ClockSource.toMillis;
-import static feign.Logger.Level.FULL;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import com.exadel.frs.commonservice.sdk.faces.feign.FacesAsyncFeignClient;
 import com.exadel.frs.commonservice.sdk.faces.feign.FacesFeignClient;
+import com.exadel.frs.commonservice.sdk.faces.feign.dto.EmbeddingDeserializer;
 import com.exadel.frs.commonservice.system.global.EnvironmentProperties;
+import feign.AsyncFeign;
 import feign.Feign;
 import feign.Request;
+import feign.RequestInterceptor;
 import feign.Retryer;
 import feign.form.spring.SpringFormEncoder;
 import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 @Configuration
 @RequiredArgsConstructor
@@ -46,17 +63,135 @@ public class FeignClientsConfig {
     @Value("${app.feign.faces.retryer.max-attempts}")
     private int facesRetryerMaxAttempts;
 
+    @Value("${app.feign.faces.pool.max-connections}")
+    private int facesPoolMaxConnections;
+
+    @Value("${app.feign.faces.pool.max-connections-per-route}")
+    private int facesPoolMaxConnectionsPerRoute;
+
+    @Value("${app.feign.faces.pool.idle-timeout}")
+    private long facesPoolIdleTimeout;
+
+    @Value("${app.feign.faces.load-balancer.failure-threshold}")
+    private int facesFailureThreshold;
+
+    @Value("${app.feign.faces.load-balancer.ejection-time}")
+    private long facesEjectionTime;
+
+    @Value("${app.feign.faces.load-balancer.probe-interval}")
+    private long facesProbeInterval;
+
+    @Value("${app.feign.faces.binary-embeddings}")
+    private boolean facesBinaryEmbeddings;
+
     private final EnvironmentProperties properties;
 
     @Bean
     public FacesFeignClient facesFeignClient() {
+        // requests are sent to the first endpoint and redirected to the chosen one by the client
+        val baseUrl = facesEndpointPool().getEndpoints().get(0).getUrl();
+
         return Feign.builder()
                     .encoder(new SpringFormEncoder(new JacksonEncoder()))
                     .decoder(new JacksonDecoder())
-                    .logLevel(FULL)
+                    .client(new LoadBalancedClient(new PooledHttpClient(facesHttpClient()), facesEndpointPool(), baseUrl))
                     .retryer(facesFeignRetryer())
+                    .requestInterceptor(embeddingFormat())
                     .options(new Request.Options(facesConnectTimeout, MILLISECONDS, facesReadTimeout, MILLISECONDS, true))
-                    .target(FacesFeignClient.class, properties.getServers().get(PYTHON).getUrl());
+                    .target(FacesFeignClient.class, baseUrl);
+    }
+
+    /**
+     * Responses of the asynchronous client are completed by a few threads of its own: requests don't hold a thread while
+     * waiting for the core service. The pool isn't a bean, an executor bean would replace the one of {@code @Async}.
+     */
+    @Bean
+    public FacesAsyncFeignClient facesAsyncFeignClient() {
+        val baseUrl = facesEndpointPool().getEndpoints().get(0).getUrl();
+        val httpClient = HttpClient.newBuilder()
+                                   .version(HttpClient.Version.HTTP_1_1)
+                                   .connectTimeout(Duration.ofMillis(facesConnectTimeout))
+                                   .followRedirects(HttpClient.Redirect.NORMAL)
+                                   .executor(asyncExecutor())
+                                   .build();
+
+        return AsyncFeign.<Object>asyncBuilder()
+                         .encoder(new SpringFormEncoder(new JacksonEncoder()))
+                         .decoder(new JacksonDecoder())
+                         .requestInterceptor(embeddingFormat())
+                         .client(new LoadBalancedAsyncClient(new JavaAsyncHttpClient(httpClient), facesEndpointPool(), baseUrl))
+                         .options(new Request.Options(facesConnectTimeout, MILLISECONDS, facesReadTimeout, MILLISECONDS, true))
+                         .target(FacesAsyncFeignClient.class, baseUrl);
+    }
+
+    /**
+     * Endpoints of the core service, {@code environment.servers.PYTHON.url} is a comma-separated list of them.
+     */
+    @Bean(destroyMethod = "close")
+    public CoreEndpointPool facesEndpointPool() {
+        val urls = Arrays.stream(properties.getServers().get(PYTHON).getUrl().split(","))
+                         .map(String::trim)
+                         .filter(StringUtils::isNotEmpty)
+                         .map(url -> StringUtils.removeEnd(url, "/"))
+                         .toList();
+
+        return new CoreEndpointPool(
+                urls,
+                facesHttpClient(),
+                facesFailureThreshold,
+                facesEjectionTime,
+                facesProbeInterval,
+                facesConnectTimeout
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager facesConnectionManager() {
+        var connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(facesPoolMaxConnections);
+        connectionManager.setDefaultMaxPerRoute(facesPoolMaxConnectionsPerRoute);
+
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient facesHttpClient() {
+        return HttpClients.custom()
+                          .setConnectionManager(facesConnectionManager())
+                          .evictIdleConnections(facesPoolIdleTimeout, MILLISECONDS)
+                          .evictExpiredConnections()
+                          .disableCookieManagement()
+                          .build();
+    }
+
+    /**
+     * Exposes {@code httpcomponents.httpclient.pool.*} metrics of the connections to the core service.
+     */
+    @Bean
+    public PoolingHttpClientConnectionManagerMetricsBinder facesConnectionPoolMetrics() {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(facesConnectionManager(), "faces");
+    }
+
+    /**
+     * Asks the core service for base64 embeddings, which are read without parsing decimal text, see
+     * {@link EmbeddingDeserializer}. Core services which don't know the header answer with lists of numbers.
+     */
+    private RequestInterceptor embeddingFormat() {
+        return template -> {
+            if (facesBinaryEmbeddings) {
+                template.header(EmbeddingDeserializer.FORMAT_HEADER, EmbeddingDeserializer.BASE64_FLOAT32);
+            }
+        };
+    }
+
+    private static ExecutorService asyncExecutor() {
+        val threadFactory = new CustomizableThreadFactory("faces-async-");
+        threadFactory.setDaemon(true);
+        val threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        val executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
     }
 
     @Bean
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.commonservice.sdk.config;
+
+import feign.AsyncClient;
+import feign.Request;
+import feign.Response;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Asynchronous Feign client on the non-blocking {@link HttpClient} of the JDK.
+ */
+@RequiredArgsConstructor
+public class JavaAsyncHttpClient implements AsyncClient<Object> {
+
+    // set by the client itself
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(Set.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+
+    private final HttpClient httpClient;
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request, final Request.Options options, final Optional<Object> requestContext) {
+        final HttpRequest httpRequest;
+        try {
+            httpRequest = toHttpRequest(request, options);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        val sent = httpClient.sendAsync(httpRequest, BodyHandlers.ofByteArray());
+        val response = sent.thenApply(httpResponse -> toFeignResponse(httpResponse, request));
+        // cancelling the response aborts the exchange
+        response.whenComplete((r, e) -> {
+            if (response.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+
+        return response;
+    }
+
+    private static HttpRequest toHttpRequest(final Request request, final Request.Options options) {
+        val body = request.body() == null ? BodyPublishers.noBody() : BodyPublishers.ofByteArray(request.body());
+        val builder = HttpRequest.newBuilder(URI.create(request.url()))
+                                 .method(request.httpMethod().name(), body)
+                                 .timeout(Duration.ofMillis(options.readTimeoutMillis()));
+
+        request.headers().forEach((name, values) -> {
+            if (!RESTRICTED_HEADERS.contains(name)) {
+                values.forEach(value -> builder.header(name, value));
+            }
+        });
+
+        return builder.build();
+    }
+
+    private static Response toFeignResponse(final HttpResponse<byte[]> httpResponse, final Request request) {
+        return Response.builder()
+                       .status(httpResponse.statusCode())
+                       .headers(Map.<String, Collection<String>>copyOf(httpResponse.headers().map()))
+                       .request(request)
+                       .body(httpResponse.body())
+                       .build();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.commonservice.sdk.config;
+
+import feign.AsyncClient;
+import feign.Request;
+import feign.Response;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Asynchronous counterpart of {@link LoadBalancedClient}, the request is outstanding until its future completes.
+ * Cancelling the future cancels the request.
+ */
+@RequiredArgsConstructor
+public class LoadBalancedAsyncClient implements AsyncClient<Object> {
+
+    private final AsyncClient<Object> delegate;
+    private final CoreEndpointPool pool;
+    private final String baseUrl;
+
+    @Override
+    public CompletableFuture<Response> execute(final Request request, final Request.Options options, final Optional<Object> requestContext) {
+        val endpoint = pool.choose();
+
+        endpoint.begin();
+        final CompletableFuture<Response> future;
+        try {
+            future = delegate.execute(LoadBalancedClient.redirect(request, endpoint, baseUrl), options, requestContext);
+        } catch (RuntimeException e) {
+            endpoint.end();
+            throw e;
+        }
+
+        val result = future.whenComplete((response, e) -> {
+            endpoint.end();
+            if (e != null) {
+                val cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof IOException) {
+                    pool.failure(endpoint, cause.getMessage());
+                }
+            } else if (LoadBalancedClient.isUnavailable(response.status())) {
+                pool.failure(endpoint, "status " + response.status());
+            } else {
+                pool.success(endpoint);
+            }
+        });
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.commonservice.sdk.config;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Sends each request of a client targeted at {@code baseUrl} to an endpoint chosen by {@link CoreEndpointPool}.
+ * Connection errors, timeouts and responses of an overloaded or unavailable endpoint count as its failures.
+ */
+@RequiredArgsConstructor
+public class LoadBalancedClient implements Client {
+
+    private final Client delegate;
+    private final CoreEndpointPool pool;
+    private final String baseUrl;
+
+    @Override
+    public Response execute(final Request request, final Request.Options options) throws IOException {
+        val endpoint = pool.choose();
+
+        endpoint.begin();
+        try {
+            val response = delegate.execute(redirect(request, endpoint, baseUrl), options);
+            if (isUnavailable(response.status())) {
+                pool.failure(endpoint, "status " + response.status());
+            } else {
+                pool.success(endpoint);
+            }
+
+            return response;
+        } catch (IOException e) {
+            pool.failure(endpoint, e.getMessage());
+            throw e;
+        } finally {
+            endpoint.end();
+        }
+    }
+
+    static Request redirect(final Request request, final CoreEndpointPool.Endpoint endpoint, final String baseUrl) {
+        val url = endpoint.getUrl() + request.url().substring(baseUrl.length());
+
+        return Request.create(request.httpMethod(), url, request.headers(), request.body(), request.charset(), request.requestTemplate());
+    }
+
+    static boolean isUnavailable(final int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+}
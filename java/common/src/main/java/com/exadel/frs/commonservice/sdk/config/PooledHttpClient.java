@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.commonservice.sdk.config;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+
+/**
+ * Feign client on Apache HttpClient, so that requests reuse kept-alive connections of its pool instead of opening
+ * {@code HttpURLConnection}s. The connection goes back to the pool when Feign closes the response body.
+ */
+@RequiredArgsConstructor
+public class PooledHttpClient implements Client {
+
+    private final HttpClient httpClient;
+
+    @Override
+    public Response execute(final Request request, final Request.Options options) throws IOException {
+        return toFeignResponse(httpClient.execute(toHttpRequest(request, options)), request);
+    }
+
+    private static HttpUriRequest toHttpRequest(final Request request, final Request.Options options) {
+        val builder = RequestBuilder.create(request.httpMethod().name())
+                                    .setUri(request.url())
+                                    .setConfig(RequestConfig.custom()
+                                                            .setConnectTimeout(options.connectTimeoutMillis())
+                                                            .setSocketTimeout(options.readTimeoutMillis())
+                                                            .setRedirectsEnabled(options.isFollowRedirects())
+                                                            .build());
+
+        request.headers().forEach((name, values) -> {
+            // set by the client from the entity
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                values.forEach(value -> builder.addHeader(name, value));
+            }
+        });
+
+        if (request.body() != null) {
+            builder.setEntity(new ByteArrayEntity(request.body()));
+        }
+
+        return builder.build();
+    }
+
+    private static Response toFeignResponse(final HttpResponse httpResponse, final Request request) throws IOException {
+        val headers = new LinkedHashMap<String, Collection<String>>();
+        for (val header : httpResponse.getAllHeaders()) {
+            headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+
+        val builder = Response.builder()
+                              .status(httpResponse.getStatusLine().getStatusCode())
+                              .reason(httpResponse.getStatusLine().getReasonPhrase())
+                              .headers(headers)
+                              .request(request);
+
+        val entity = httpResponse.getEntity();
+        if (entity != null) {
+            val length = entity.getContentLength();
+            builder.body(entity.getContent(), length >= 0 && length <= Integer.MAX_VALUE ? (int) length : null);
+        }
+
+        return builder.build();
+    }
+}
@@ -2,6 +2,7 @@ package com.exadel.frs.commonservice.sdk.faces;
 
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesStatusResponse;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
@@ -61,6 +62,30 @@ public interface FacesApiClient {
             String facePlugins,
             Boolean detectFaces);
 
+    /**
+     * Same as {@link #findFacesWithCalculator}, but doesn't block the calling thread while the faces are found
+     *
+     * @return future of the result, failed with the same exceptions as the blocking call
+     */
+    CompletableFuture<FindFacesResponse> findFacesWithCalculatorAsync(
+            MultipartFile photo,
+            Integer faceLimit,
+            Double thresholdC,
+            String facePlugins,
+            Boolean detectFaces);
+
+    /**
+     * Same as {@link #findFacesBase64WithCalculator}, but doesn't block the calling thread while the faces are found
+     *
+     * @return future of the result, failed with the same exceptions as the blocking call
+     */
+    CompletableFuture<FindFacesResponse> findFacesBase64WithCalculatorAsync(
+            String imageAsBase64,
+            Integer faceLimit,
+            Double thresholdC,
+            String facePlugins,
+            Boolean detectFaces);
+
     /**
      * Calls /status endpoint of Faces API
      *
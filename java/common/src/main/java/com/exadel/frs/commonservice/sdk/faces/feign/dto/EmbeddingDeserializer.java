@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.exadel.frs.commonservice.sdk.faces.feign.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import lombok.val;
+
+/**
+ * Reads an embedding of the core service straight into a primitive array. The embedding is either a list of numbers
+ * or, if {@link #FORMAT_HEADER} of the request asked for it, base64 of its little-endian float32 values.
+ */
+public class EmbeddingDeserializer extends StdDeserializer<double[]> {
+
+    public static final String FORMAT_HEADER = "X-Embedding-Format";
+    public static final String BASE64_FLOAT32 = "base64-float32";
+
+    public EmbeddingDeserializer() {
+        super(double[].class);
+    }
+
+    @Override
+    public double[] deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+        if (parser.hasToken(JsonToken.VALUE_STRING)) {
+            val bytes = parser.getBinaryValue();
+            if (bytes.length % Float.BYTES != 0) {
+                return (double[]) context.handleWeirdStringValue(double[].class, parser.getText(), "not a float32 array");
+            }
+
+            val floats = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            val embedding = new double[floats.remaining()];
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = floats.get(i);
+            }
+
+            return embedding;
+        }
+
+        if (!parser.isExpectedStartArrayToken()) {
+            return (double[]) context.handleUnexpectedToken(double[].class, parser);
+        }
+
+        var embedding = new double[512];
+        var size = 0;
+        for (var token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (size == embedding.length) {
+                embedding = Arrays.copyOf(embedding, size * 2);
+            }
+            embedding[size++] = parser.getDoubleValue();
+        }
+
+        return size == embedding.length ? embedding : Arrays.copyOf(embedding, size);
+    }
+}
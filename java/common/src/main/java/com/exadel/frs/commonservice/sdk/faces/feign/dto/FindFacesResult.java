@@ -18,6 +18,7 @@ package com.exadel.frs.commonservice.sdk.faces.feign.dto;
 import com.exadel.frs.commonservice.dto.ExecutionTimeDto;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -37,7 +38,8 @@ public class FindFacesResult {
     private FacesAge age;
     private FacesGender gender;
     private FacesPose pose;
-    private Double[] embedding;
+    @JsonDeserialize(using = EmbeddingDeserializer.class)
+    private double[] embedding;
     private FacesBox box;
     @JsonProperty(value = "execution_time")
     private ExecutionTimeDto executionTime;
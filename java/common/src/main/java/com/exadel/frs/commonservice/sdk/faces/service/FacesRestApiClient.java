@@ -3,13 +3,19 @@ package com.exadel.frs.commonservice.sdk.faces.service;
 import com.exadel.frs.commonservice.sdk.faces.FacesApiClient;
 import com.exadel.frs.commonservice.sdk.faces.exception.FacesServiceException;
 import com.exadel.frs.commonservice.sdk.faces.exception.NoFacesFoundException;
+import com.exadel.frs.commonservice.sdk.faces.feign.FacesAsyncFeignClient;
 import com.exadel.frs.commonservice.sdk.faces.feign.FacesFeignClient;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FacesStatusResponse;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesRequest;
 import com.exadel.frs.commonservice.sdk.faces.feign.dto.FindFacesResponse;
 import com.exadel.frs.commonservice.system.global.Constants;
 import feign.FeignException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import lombok.AllArgsConstructor;
+import lombok.val;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
@@ -22,6 +28,7 @@ public class FacesRestApiClient implements FacesApiClient {
     private static final String COMMA = ",";
 
     private final FacesFeignClient feignClient;
+    private final FacesAsyncFeignClient asyncFeignClient;
 
     @Override
     public FindFacesResponse findFaces(final MultipartFile photo, final Integer faceLimit, final Double thresholdC, final String facePlugins, final Boolean detectFaces) {
@@ -61,18 +68,25 @@ public class FacesRestApiClient implements FacesApiClient {
         return findWithCalculator(null, imageAsBase64, faceLimit, thresholdC, facePlugins, detectFaces);
     }
 
+    @Override
+    public CompletableFuture<FindFacesResponse> findFacesWithCalculatorAsync(final MultipartFile photo, final Integer faceLimit, final Double thresholdC, final String facePlugins, final Boolean detectFaces) {
+        return translateExceptions(() -> asyncFeignClient.findFaces(photo, faceLimit, thresholdC, withCalculator(facePlugins), detectFaces));
+    }
+
+    @Override
+    public CompletableFuture<FindFacesResponse> findFacesBase64WithCalculatorAsync(final String imageAsBase64, final Integer faceLimit, final Double thresholdC, final String facePlugins, final Boolean detectFaces) {
+        return translateExceptions(() -> asyncFeignClient.findFacesBase64(
+                new FindFacesRequest(imageAsBase64),
+                faceLimit,
+                thresholdC,
+                withCalculator(facePlugins),
+                detectFaces
+        ));
+    }
+
     private FindFacesResponse findWithCalculator(final MultipartFile photo, final String imageAsBase64, final Integer faceLimit, final Double thresholdC, final String facePlugins, final Boolean detectFaces) {
         try {
-            String finalFacePlugins;
-            if (StringUtils.isNotBlank(facePlugins)) {
-                if (!facePlugins.contains(Constants.CALCULATOR_PLUGIN)) {
-                    finalFacePlugins = Constants.CALCULATOR_PLUGIN + COMMA + facePlugins;
-                } else {
-                    finalFacePlugins = facePlugins;
-                }
-            } else {
-                finalFacePlugins = Constants.CALCULATOR_PLUGIN;
-            }
+            String finalFacePlugins = withCalculator(facePlugins);
 
             if (photo != null) {
                 return feignClient.findFaces(photo, faceLimit, thresholdC, finalFacePlugins, detectFaces);
@@ -92,6 +106,56 @@ public class FacesRestApiClient implements FacesApiClient {
         }
     }
 
+    private static String withCalculator(final String facePlugins) {
+        if (StringUtils.isNotBlank(facePlugins)) {
+            if (!facePlugins.contains(Constants.CALCULATOR_PLUGIN)) {
+                return Constants.CALCULATOR_PLUGIN + COMMA + facePlugins;
+            } else {
+                return facePlugins;
+            }
+        } else {
+            return Constants.CALCULATOR_PLUGIN;
+        }
+    }
+
+    /**
+     * Fails the future with the exceptions of the blocking calls, whether the call fails at once or later.
+     * Cancelling the future cancels the call.
+     */
+    private static CompletableFuture<FindFacesResponse> translateExceptions(final Supplier<CompletableFuture<FindFacesResponse>> call) {
+        CompletableFuture<FindFacesResponse> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        val started = future;
+        final CompletableFuture<FindFacesResponse> result = future.handle((response, e) -> {
+            if (e == null) {
+                return response;
+            }
+
+            val cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof FeignException.BadRequest) {
+                throw new NoFacesFoundException();
+            } else if (cause instanceof FeignException || cause instanceof IOException) {
+                throw new FacesServiceException(cause.getMessage());
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw new CompletionException(cause);
+        });
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                started.cancel(true);
+            }
+        });
+
+        return result;
+    }
+
     @Override
     @Cacheable(value = "status", unless = "#result==null")
     public FacesStatusResponse getStatus() {